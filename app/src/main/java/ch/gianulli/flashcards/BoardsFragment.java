@@ -18,7 +18,6 @@ package ch.gianulli.flashcards;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -35,6 +34,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
 import java.util.ArrayList;
 import java.util.Set;
@@ -44,8 +44,10 @@ import ch.gianulli.flashcards.lists.BoardListAdapter;
 import ch.gianulli.flashcards.lists.BoardViewHolder;
 import ch.gianulli.flashcards.ui.MarginItemDecoration;
 import ch.gianulli.trelloapi.Board;
+import ch.gianulli.trelloapi.Cancellable;
+import ch.gianulli.trelloapi.RevalidatingCallback;
 import ch.gianulli.trelloapi.TrelloAPI;
-import ch.gianulli.trelloapi.TrelloNotAccessibleException;
+import ch.gianulli.trelloapi.TrelloException;
 import ch.gianulli.trelloapi.TrelloNotAuthorizedException;
 
 
@@ -74,7 +76,7 @@ public class BoardsFragment extends Fragment implements SwipeRefreshLayout.OnRef
 
 	private View mTrelloNotAccessibleIndicator;
 
-	private AsyncTask mBoardLoader = null;
+	private Cancellable mBoardLoader = null;
 
 	private Page mActivePage;
 
@@ -137,7 +139,7 @@ public class BoardsFragment extends Fragment implements SwipeRefreshLayout.OnRef
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		mTrelloApi = new TrelloAPI(getActivity());
+		mTrelloApi = TrelloAPI.getInstance(getActivity());
 
 		mPrefModel = new PreferenceModel(getActivity());
 
@@ -230,7 +232,7 @@ public class BoardsFragment extends Fragment implements SwipeRefreshLayout.OnRef
 	@Override
 	public void onPause() {
 		if (mBoardLoader != null) {
-			mBoardLoader.cancel(true);
+			mBoardLoader.cancel();
 			mBoardLoader = null;
 		}
 
@@ -263,76 +265,78 @@ public class BoardsFragment extends Fragment implements SwipeRefreshLayout.OnRef
 
 	@Override
 	public void onRefresh() {
-		if (mBoardLoader != null) {
-			mBoardLoader.cancel(true);
-			mBoardLoader = null;
+		if (mAdapter.isEmpty()) {
+			setActivePage(Page.PROGRESS);
+			mRefreshLayout.setRefreshing(false);
+		} else {
+			setActivePage(Page.BOARD_LIST);
+			mRefreshLayout.setRefreshing(true);
 		}
 
-		mBoardLoader = new AsyncTask<Void, Void, ArrayList<Board>>() {
+		if (mBoardLoader != null) {
+			mBoardLoader.cancel();
+		}
+		mBoardLoader = Board.listAllBoardsAsync(mTrelloApi, new
+				RevalidatingCallback<ArrayList<Board>>() {
+			private boolean mShowsStale = false;
 
 			@Override
-			protected void onPreExecute() {
-				super.onPreExecute();
-				if (mAdapter.isEmpty()) {
-					setActivePage(Page.PROGRESS);
-					mRefreshLayout.setRefreshing(false);
-				} else {
-					setActivePage(Page.BOARD_LIST);
-					mRefreshLayout.setRefreshing(true);
-				}
+			public void onStale(ArrayList<Board> boards) {
+				// Show the boards of the last visit while they are refreshed
+				mShowsStale = true;
+				showBoards(boards);
+				mRefreshLayout.setRefreshing(true);
 			}
 
 			@Override
-			protected ArrayList<Board> doInBackground(Void... params) {
-				try {
-					// Get boards from Trello
-					ArrayList<Board> result = Board.listAllBoards(mTrelloApi);
-
-					// Remove hidden boards
-					Set<String> hiddenBoards = mPrefModel.getHiddenBoards();
-					for (int i = result.size() - 1; i >= 0; --i) {
-						String id = result.get(i).getId();
-						if (hiddenBoards.contains(id)) {
-							result.remove(i);
-						}
-					}
+			public void onFresh(ArrayList<Board> boards, boolean changed) {
+				mBoardLoader = null;
 
-					return result;
-				} catch (TrelloNotAuthorizedException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							mTrelloApi.requestAuthorization(getActivity()
-									.getSupportFragmentManager());
-						}
-					});
-				} catch (TrelloNotAccessibleException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							setActivePage(Page.NO_CONNECTION);
-						}
-					});
-					Log.d("test", "Trello not accessible: " + e.getMessage());
+				mRefreshLayout.setRefreshing(false);
+				if (changed || !mShowsStale) {
+					showBoards(boards);
 				}
-
-				return null;
 			}
 
 			@Override
-			protected void onPostExecute(ArrayList<Board> boards) {
+			public void onError(TrelloException e) {
+				mBoardLoader = null;
+
 				mRefreshLayout.setRefreshing(false);
+				if (!mShowsStale) {
+					mAdapter.setBoards(null);
+				}
 
-				mAdapter.setBoards(boards);
-				if (boards != null) {
-					if (mAdapter.isEmpty()) {
-						setActivePage(Page.NO_BOARDS);
-					} else {
-						setActivePage(Page.BOARD_LIST);
-					}
+				if (e instanceof TrelloNotAuthorizedException) {
+					mTrelloApi.requestAuthorization(getActivity().getSupportFragmentManager());
+				} else if (mShowsStale) {
+					// Keep the content of the last visit
+					Toast.makeText(getActivity(), R.string.refresh_failed, Toast.LENGTH_SHORT)
+							.show();
+				} else {
+					setActivePage(Page.NO_CONNECTION);
+					Log.d("test", "Trello not accessible: " + e.getMessage());
 				}
 			}
-		}.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+		});
+	}
+
+	private void showBoards(ArrayList<Board> boards) {
+		// Remove hidden boards (the result may be shared, so it is not modified)
+		Set<String> hiddenBoards = mPrefModel.getHiddenBoards();
+		ArrayList<Board> visibleBoards = new ArrayList<>(boards.size());
+		for (Board board : boards) {
+			if (!hiddenBoards.contains(board.getId())) {
+				visibleBoards.add(board);
+			}
+		}
+
+		mAdapter.setBoards(visibleBoards);
+		if (mAdapter.isEmpty()) {
+			setActivePage(Page.NO_BOARDS);
+		} else {
+			setActivePage(Page.BOARD_LIST);
+		}
 	}
 
 	@Override
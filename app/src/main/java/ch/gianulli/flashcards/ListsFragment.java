@@ -18,7 +18,6 @@ package ch.gianulli.flashcards;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -31,6 +30,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
 import java.util.ArrayList;
 
@@ -38,9 +38,11 @@ import ch.gianulli.flashcards.lists.ListListAdapter;
 import ch.gianulli.flashcards.lists.ListViewHolder;
 import ch.gianulli.flashcards.ui.MarginItemDecoration;
 import ch.gianulli.trelloapi.Board;
+import ch.gianulli.trelloapi.Cancellable;
+import ch.gianulli.trelloapi.RevalidatingCallback;
 import ch.gianulli.trelloapi.TrelloAPI;
+import ch.gianulli.trelloapi.TrelloException;
 import ch.gianulli.trelloapi.TrelloList;
-import ch.gianulli.trelloapi.TrelloNotAccessibleException;
 import ch.gianulli.trelloapi.TrelloNotAuthorizedException;
 
 
@@ -69,7 +71,7 @@ public class ListsFragment extends Fragment implements SwipeRefreshLayout.OnRefr
 
 	private View mTrelloNotAccessibleIndicator;
 
-	private AsyncTask mListLoader = null;
+	private Cancellable mListLoader = null;
 
 	private Page mActivePage;
 
@@ -90,7 +92,7 @@ public class ListsFragment extends Fragment implements SwipeRefreshLayout.OnRefr
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		mTrelloApi = new TrelloAPI(getActivity());
+		mTrelloApi = TrelloAPI.getInstance(getActivity());
 
 		mAdapter = new ListListAdapter(this);
 
@@ -180,7 +182,7 @@ public class ListsFragment extends Fragment implements SwipeRefreshLayout.OnRefr
 	@Override
 	public void onPause() {
 		if (mListLoader != null) {
-			mListLoader.cancel(true);
+			mListLoader.cancel();
 			mListLoader = null;
 		}
 
@@ -213,63 +215,68 @@ public class ListsFragment extends Fragment implements SwipeRefreshLayout.OnRefr
 
 	@Override
 	public void onRefresh() {
-		if (mListLoader != null) {
-			mListLoader.cancel(true);
-			mListLoader = null;
+		if (mAdapter.isEmpty()) {
+			setActivePage(Page.PROGRESS);
+			mRefreshLayout.setRefreshing(false);
+		} else {
+			setActivePage(Page.LIST_LIST);
+			mRefreshLayout.setRefreshing(true);
 		}
 
-		mListLoader = new AsyncTask<Void, Void, ArrayList<TrelloList>>() {
+		if (mListLoader != null) {
+			mListLoader.cancel();
+		}
+		mListLoader = mBoard.getAllListsAsync(mTrelloApi, new
+				RevalidatingCallback<ArrayList<TrelloList>>() {
+			private boolean mShowsStale = false;
 
 			@Override
-			protected void onPreExecute() {
-				super.onPreExecute();
-				if (mAdapter.isEmpty()) {
-					setActivePage(Page.PROGRESS);
-					mRefreshLayout.setRefreshing(false);
-				} else {
-					setActivePage(Page.LIST_LIST);
-					mRefreshLayout.setRefreshing(true);
-				}
+			public void onStale(ArrayList<TrelloList> lists) {
+				// Show the lists of the last visit while they are refreshed
+				mShowsStale = true;
+				showLists(lists);
+				mRefreshLayout.setRefreshing(true);
 			}
 
 			@Override
-			protected ArrayList<TrelloList> doInBackground(Void... params) {
-				try {
-					return mBoard.getAllLists(mTrelloApi);
-				} catch (TrelloNotAuthorizedException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							mTrelloApi.requestAuthorization(getActivity()
-									.getSupportFragmentManager());
-						}
-					});
-				} catch (TrelloNotAccessibleException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							setActivePage(Page.NO_CONNECTION);
-						}
-					});
-				}
+			public void onFresh(ArrayList<TrelloList> lists, boolean changed) {
+				mListLoader = null;
 
-				return null;
+				mRefreshLayout.setRefreshing(false);
+				if (changed || !mShowsStale) {
+					showLists(lists);
+				}
 			}
 
 			@Override
-			protected void onPostExecute(ArrayList<TrelloList> lists) {
+			public void onError(TrelloException e) {
+				mListLoader = null;
+
 				mRefreshLayout.setRefreshing(false);
+				if (!mShowsStale) {
+					mAdapter.setLists(null);
+				}
 
-				mAdapter.setLists(lists);
-				if (lists != null) {
-					if (mAdapter.isEmpty()) {
-						setActivePage(Page.NO_BOARDS);
-					} else {
-						setActivePage(Page.LIST_LIST);
-					}
+				if (e instanceof TrelloNotAuthorizedException) {
+					mTrelloApi.requestAuthorization(getActivity().getSupportFragmentManager());
+				} else if (mShowsStale) {
+					// Keep the content of the last visit
+					Toast.makeText(getActivity(), R.string.refresh_failed, Toast.LENGTH_SHORT)
+							.show();
+				} else {
+					setActivePage(Page.NO_CONNECTION);
 				}
 			}
-		}.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+		});
+	}
+
+	private void showLists(ArrayList<TrelloList> lists) {
+		mAdapter.setLists(lists);
+		if (mAdapter.isEmpty()) {
+			setActivePage(Page.NO_BOARDS);
+		} else {
+			setActivePage(Page.LIST_LIST);
+		}
 	}
 
 	@Override
@@ -23,6 +23,7 @@ import android.util.Log;
 import android.widget.Toast;
 
 import ch.gianulli.trelloapi.Board;
+import ch.gianulli.trelloapi.TrelloAPI;
 import ch.gianulli.trelloapi.TrelloList;
 
 
@@ -36,6 +37,10 @@ public class MainActivity extends AppCompatActivity implements BoardsFragment
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
+
+		// Connect to Trello while the layout is inflated
+		TrelloAPI.getInstance(this).prewarm();
+
 		setContentView(R.layout.activity_main);
 
 		Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
@@ -18,7 +18,6 @@ package ch.gianulli.flashcards;
 
 import android.app.AlertDialog;
 import android.content.DialogInterface;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.view.ViewPager;
@@ -32,10 +31,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 
 import ch.gianulli.flashcards.lists.CardsAdapter;
+import ch.gianulli.trelloapi.Cancellable;
 import ch.gianulli.trelloapi.Card;
+import ch.gianulli.trelloapi.CardPage;
+import ch.gianulli.trelloapi.CardPageCallback;
 import ch.gianulli.trelloapi.TrelloAPI;
+import ch.gianulli.trelloapi.TrelloException;
 import ch.gianulli.trelloapi.TrelloList;
-import ch.gianulli.trelloapi.TrelloNotAccessibleException;
 import ch.gianulli.trelloapi.TrelloNotAuthorizedException;
 
 public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsweredListener {
@@ -52,6 +54,11 @@ public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsw
 
 	private static final String KEY_WRONG_CARDS_LIST_ID = "wrong_cards_list_id";
 
+	/**
+	 * Cards per request, small enough for slow connections even if the list is huge
+	 */
+	private static final int CARD_PAGE_SIZE = 300;
+
 	private ViewPager mViewPager;
 
 	private View mContainer;
@@ -76,11 +83,9 @@ public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsw
 	 */
 	private String mWrongCardsListId;
 
-	private TrelloList mList;
-
 	private ArrayList<Card> mCards = null;
 
-	private AsyncTask mCardsLoader = null;
+	private Cancellable mCardsLoader = null;
 
 	private CardsAdapter mAdapter;
 
@@ -116,7 +121,7 @@ public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsw
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		mTrelloApi = new TrelloAPI(getActivity());
+		mTrelloApi = TrelloAPI.getInstance(getActivity());
 
 		mListId = getArguments().getString(KEY_LIST_ID);
 
@@ -177,6 +182,15 @@ public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsw
 		return v;
 	}
 
+	@Override
+	public void onDestroy() {
+		if (mCardsLoader != null) {
+			mCardsLoader.cancel();
+			mCardsLoader = null;
+		}
+		super.onDestroy();
+	}
+
 	@Override
 	public void onCardAnswered(int position, Card card, boolean correctAnswer) {
 		// Move card to new list (in background)
@@ -202,84 +216,61 @@ public class SessionFragment extends Fragment implements CardsAdapter.OnCardAnsw
 	}
 
 	private void fetchCards() {
+		setActivePage(Page.PROGRESS);
+
 		if (mCardsLoader != null) {
-			mCardsLoader.cancel(true);
-			mCardsLoader = null;
+			mCardsLoader.cancel();
 		}
-
-		mCardsLoader = new AsyncTask<Void, Void, Boolean>() {
-
+		mCardsLoader = TrelloList.getAllCardsAsync(mTrelloApi, mListId, TrelloList
+				.CARD_PAGE_PROJECTION, CARD_PAGE_SIZE, new CardPageCallback() {
 			@Override
-			protected void onPreExecute() {
-				super.onPreExecute();
-				setActivePage(Page.PROGRESS);
+			public void onPage(CardPage page) {
+				// Cards are selected by their position, so the session waits for all pages
 			}
 
 			@Override
-			protected Boolean doInBackground(Void... params) {
-				try {
-					mList = TrelloList.getList(mTrelloApi, null, mListId);
-
-					if (mList != null) {
-
-						// Select cards
-						mCards = mList.getCards();
-
-						int mode = getArguments().getInt(KEY_MODE);
-						int n = getArguments().getInt(KEY_NBR_OF_CARDS);
-						if (mode == SessionActivity.MODE_AT_RANDOM) {
-							mCards = new ArrayList<>(mCards); // cards in list stay untouched
-							Collections.shuffle(mCards);
-							mCards = new ArrayList<>(mCards.subList(0, Math.min(n, mCards.size()
-							)));
-						} else if (mode == SessionActivity.MODE_FROM_TOP) {
-							mCards = new ArrayList<>(mCards.subList(0, Math.min(n, mCards.size()
-							)));
-						} else if (mode == SessionActivity.MODE_FROM_BOTTOM) {
-							mCards = new ArrayList<>(mCards.subList(Math.max(0, mCards.size() - n)
-									, mCards.size()));
-							Collections.reverse(mCards);
-						}
-
-						return true;
-					} else {
-						throw new TrelloNotAccessibleException("Result was null.");
-					}
-				} catch (TrelloNotAuthorizedException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							mTrelloApi.requestAuthorization(getActivity()
-									.getSupportFragmentManager());
-						}
-					});
-				} catch (TrelloNotAccessibleException e) {
-					getActivity().runOnUiThread(new Runnable() {
-						@Override
-						public void run() {
-							setActivePage(Page.NO_CONNECTION);
-						}
-					});
-					Log.d("test", "Trello not accessible: " + e.getMessage());
+			public void onComplete(ArrayList<Card> cards) {
+				mCardsLoader = null;
+
+				// Select cards
+				mCards = cards;
+
+				int mode = getArguments().getInt(KEY_MODE);
+				int n = getArguments().getInt(KEY_NBR_OF_CARDS);
+				if (mode == SessionActivity.MODE_AT_RANDOM) {
+					mCards = new ArrayList<>(mCards); // cards in list stay untouched
+					Collections.shuffle(mCards);
+					mCards = new ArrayList<>(mCards.subList(0, Math.min(n, mCards.size())));
+				} else if (mode == SessionActivity.MODE_FROM_TOP) {
+					mCards = new ArrayList<>(mCards.subList(0, Math.min(n, mCards.size())));
+				} else if (mode == SessionActivity.MODE_FROM_BOTTOM) {
+					mCards = new ArrayList<>(mCards.subList(Math.max(0, mCards.size() - n),
+							mCards.size()));
+					Collections.reverse(mCards);
 				}
 
-				return false;
+				mAdapter.setCards(mCards);
+				setActivePage(Page.SESSION_VIEW);
+
+				mViewPager.setCurrentItem(0);
+
+				// Update page indicator
+				mPageIndicator.setText(getResources().getString(R.string.page_indicator_text,
+						mViewPager.getCurrentItem() + 1, mAdapter.getCount()));
 			}
 
 			@Override
-			protected void onPostExecute(Boolean success) {
-				if (success) {
-					mAdapter.setCards(mCards);
-					setActivePage(Page.SESSION_VIEW);
-
-					mViewPager.setCurrentItem(0);
+			public void onError(TrelloException e) {
+				mCardsLoader = null;
 
-					// Update page indicator
-					mPageIndicator.setText(getResources().getString(R.string.page_indicator_text,
-							mViewPager.getCurrentItem() + 1, mAdapter.getCount()));
+				if (e instanceof TrelloNotAuthorizedException) {
+					mTrelloApi.requestAuthorization(getActivity().getSupportFragmentManager());
+				} else {
+					setActivePage(Page.NO_CONNECTION);
+					Log.d("test", "Trello not accessible: " + e.getMessage());
 				}
 			}
-		}.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+		});
 	}
 
 	private void onSessionFinished() {
@@ -260,11 +260,12 @@ public class ListViewHolder extends RecyclerView.ViewHolder implements View.OnCl
 
 		mTextTitle.setText(list.getName());
 
-		int cards = list.getCards().size();
-		if (cards == 0) {
+		int cards = list.getCardCount();
+		if (cards == TrelloList.UNKNOWN_CARD_COUNT) {
+			mTextDescription.setText(mContext.getString(R.string.unknown_cards));
+		} else if (cards == 0) {
 			mTextDescription.setText(mContext.getString(R.string.no_cards));
-		}
-		if (cards == 1) {
+		} else if (cards == 1) {
 			mTextDescription.setText(mContext.getString(R.string.one_card));
 		} else {
 			mTextDescription.setText(String.format(mContext.getString(R.string.some_cards),
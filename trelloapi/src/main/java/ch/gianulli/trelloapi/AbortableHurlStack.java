@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Request;
+import com.android.volley.toolbox.HurlStack;
+
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * {@link HurlStack} that remembers the connection of each request, so that a cancelled request
+ * can be aborted while it waits for the server or reads the body. Volley itself only stops
+ * delivering the answer of a cancelled request.
+ */
+class AbortableHurlStack extends HurlStack {
+
+	private final ThreadLocal<Request<?>> mCurrentRequest = new ThreadLocal<>();
+
+	private final Map<Request<?>, HttpURLConnection> mConnections = new ConcurrentHashMap<>();
+
+	/**
+	 * @param sslSocketFactory factory for HTTPS connections, or null for the default
+	 */
+	AbortableHurlStack(SSLSocketFactory sslSocketFactory) {
+		super(null, sslSocketFactory);
+	}
+
+	@Override
+	public HttpResponse performRequest(Request<?> request, Map<String, String> additionalHeaders)
+			throws IOException, AuthFailureError {
+		mCurrentRequest.set(request);
+		try {
+			return super.performRequest(request, additionalHeaders);
+		} finally {
+			mCurrentRequest.remove();
+		}
+	}
+
+	@Override
+	protected HttpURLConnection createConnection(URL url) throws IOException {
+		Request<?> request = mCurrentRequest.get();
+		if (request != null && request.isCanceled()) {
+			throw new IOException("Request was cancelled");
+		}
+		HttpURLConnection connection = super.createConnection(url);
+		if (request != null) {
+			mConnections.put(request, connection);
+			if (request.isCanceled()) {
+				// Cancelled in the meantime
+				abort(request);
+				throw new IOException("Request was cancelled");
+			}
+		}
+		return connection;
+	}
+
+	/**
+	 * Closes the connection of the request, if it has one. The body is read after {@link
+	 * #performRequest(Request, Map)} returns, so the connection stays registered until the
+	 * request is released or aborted. May block, don't call it on the main thread.
+	 */
+	void abort(Request<?> request) {
+		HttpURLConnection connection = mConnections.remove(request);
+		if (connection != null) {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Forgets the connection of a finished request.
+	 */
+	void release(Request<?> request) {
+		mConnections.remove(request);
+	}
+}
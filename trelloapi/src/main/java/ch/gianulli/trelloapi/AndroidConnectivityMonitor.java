@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches the connectivity broadcasts of the {@link ConnectivityManager}. Listeners are called
+ * on the main thread. Needs the ACCESS_NETWORK_STATE permission.
+ */
+public class AndroidConnectivityMonitor implements ConnectivityMonitor {
+
+	private final ConnectivityManager mConnectivityManager;
+
+	private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+	private boolean mConnected;
+
+	/**
+	 * @param context application context, the receiver stays registered for its lifetime
+	 */
+	public AndroidConnectivityMonitor(Context context) {
+		mConnectivityManager = (ConnectivityManager) context.getSystemService(Context
+				.CONNECTIVITY_SERVICE);
+		mConnected = isConnected();
+		context.registerReceiver(new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				onConnectivityChanged();
+			}
+		}, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+	}
+
+	@Override
+	public boolean isConnected() {
+		NetworkInfo info = mConnectivityManager.getActiveNetworkInfo();
+		return info != null && info.isConnected();
+	}
+
+	@Override
+	public void addListener(Listener listener) {
+		mListeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(Listener listener) {
+		mListeners.remove(listener);
+	}
+
+	private void onConnectivityChanged() {
+		boolean connected = isConnected();
+		if (connected == mConnected) {
+			return;
+		}
+		mConnected = connected;
+		for (Listener listener : mListeners) {
+			listener.onConnectivityChanged(connected);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Adds the application key and, if necessary, the access token to every request.
+ * <p/>
+ * A token that Trello has rejected is remembered: requests that are still waiting for
+ * an answer with it fail at once and new requests fail without reaching the network, until the
+ * token is replaced.
+ */
+public class AuthInterceptor implements Interceptor {
+
+	private final TrelloAPI mApi;
+
+	private final Set<PendingCall> mPendingCalls = new HashSet<>();
+
+	private String mRejectedToken = null;
+
+	public AuthInterceptor(TrelloAPI api) {
+		mApi = api;
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		final TrelloRequest request = chain.request();
+		request.setQueryArg("key", mApi.getAppKey());
+		if (!request.isTokenNecessary()) {
+			chain.proceed(request, callback);
+			return;
+		}
+
+		String token = mApi.getToken();
+		final PendingCall call;
+		synchronized (this) {
+			if (token == null || token.equals(mRejectedToken)) {
+				call = null;
+			} else {
+				call = new PendingCall(request.copy(), token, callback);
+				mPendingCalls.add(call);
+			}
+		}
+		if (call == null) {
+			callback.onError(new TrelloNotAuthorizedException("Token was rejected."));
+			return;
+		}
+
+		// The copy is sent, so that it can be stopped without cancelling the request itself
+		call.mRequest.setQueryArg("token", token);
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				finish(call);
+				call.mRequest.cancel();
+			}
+		});
+		chain.proceed(call.mRequest, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				if (finish(call)) {
+					if (response.isTokenRejected()) {
+						reject(call.mToken);
+					}
+					call.mCallback.onSuccess(response);
+				}
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				if (finish(call)) {
+					call.mCallback.onError(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return true if the token has been rejected by Trello
+	 */
+	public synchronized boolean isRejected(String token) {
+		return token != null && token.equals(mRejectedToken);
+	}
+
+	/**
+	 * Forgets the rejected token, e.g. after the user has authorized the app again.
+	 */
+	public synchronized void reset() {
+		mRejectedToken = null;
+	}
+
+	/**
+	 * @return false if the call has already been finished
+	 */
+	private synchronized boolean finish(PendingCall call) {
+		return mPendingCalls.remove(call);
+	}
+
+	/**
+	 * Remembers the token and fails all calls that are still waiting with it.
+	 */
+	private void reject(String token) {
+		ArrayList<PendingCall> failed = new ArrayList<>();
+		synchronized (this) {
+			mRejectedToken = token;
+			Iterator<PendingCall> it = mPendingCalls.iterator();
+			while (it.hasNext()) {
+				PendingCall call = it.next();
+				if (call.mToken.equals(token)) {
+					failed.add(call);
+					it.remove();
+				}
+			}
+		}
+		for (PendingCall call : failed) {
+			call.mRequest.cancel();
+			call.mCallback.onError(new TrelloNotAuthorizedException("Token was rejected."));
+		}
+	}
+
+	private static class PendingCall {
+
+		private final TrelloRequest mRequest;
+
+		private final String mToken;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		public PendingCall(TrelloRequest request, String token, TrelloCallback<TrelloResponse>
+				callback) {
+			mRequest = request;
+			mToken = token;
+			mCallback = callback;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Estimates round-trip time and bandwidth of the connection to Trello from the network times of
+ * the answers passing through it, and derives the payload mode from them: on a slow link the
+ * models fetch only what the current screen needs (see {@link Board#LITE_LISTS_PROJECTION}).
+ * <p/>
+ * Small answers are taken as round-trip samples, large ones as bandwidth samples after
+ * subtracting the round-trip time. Both are smoothed with an exponentially weighted moving
+ * average. The estimate should be reset when the network changes.
+ */
+public class BandwidthEstimator implements Interceptor {
+
+	/**
+	 * Amount of data fetched for screens that can do with less
+	 */
+	public enum Mode {
+		/**
+		 * All fields are fetched
+		 */
+		FULL,
+
+		/**
+		 * Only names and counts are fetched, details are loaded when they are needed
+		 */
+		LITE
+	}
+
+	/**
+	 * Answers up to this size are dominated by the round-trip time
+	 */
+	private static final int RTT_SAMPLE_MAX_BYTES = 4 * 1024;
+
+	private static final double WEIGHT = 0.3;
+
+	private static final int MIN_SAMPLES = 3;
+
+	/**
+	 * Lite mode is entered below this bandwidth or above this round-trip time
+	 */
+	private static final double LITE_BANDWIDTH_BYTES_PER_S = 40 * 1024;
+
+	private static final double LITE_RTT_MS = 1200;
+
+	/**
+	 * Lite mode is left only on a clearly faster link, so that the mode does not flap
+	 */
+	private static final double FULL_BANDWIDTH_BYTES_PER_S = 80 * 1024;
+
+	private static final double FULL_RTT_MS = 600;
+
+	private double mRttMs = -1;
+
+	private double mBandwidthBytesPerS = -1;
+
+	private int mRttSamples = 0;
+
+	private int mBandwidthSamples = 0;
+
+	private Mode mMode = Mode.FULL;
+
+	@Override
+	public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+		chain.proceed(chain.request(), new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				addSample(response.getData().length, response.getNetworkTimeMs());
+				callback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				callback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * @param bytes         size of the answer body
+	 * @param networkTimeMs time the network round trip took
+	 */
+	public synchronized void addSample(int bytes, long networkTimeMs) {
+		if (networkTimeMs <= 0) {
+			return;
+		}
+
+		if (bytes <= RTT_SAMPLE_MAX_BYTES) {
+			mRttMs = average(mRttMs, networkTimeMs);
+			++mRttSamples;
+		} else {
+			double transferMs = Math.max(1, networkTimeMs - Math.max(0, mRttMs));
+			mBandwidthBytesPerS = average(mBandwidthBytesPerS, bytes * 1000.0 / transferMs);
+			++mBandwidthSamples;
+		}
+		updateMode();
+	}
+
+	/**
+	 * Forgets all samples, e.g. after the device has switched networks.
+	 */
+	public synchronized void reset() {
+		mRttMs = -1;
+		mBandwidthBytesPerS = -1;
+		mRttSamples = 0;
+		mBandwidthSamples = 0;
+		mMode = Mode.FULL;
+	}
+
+	/**
+	 * @return estimated round-trip time in ms or -1 if there are not enough samples
+	 */
+	public synchronized long getRttMs() {
+		return (mRttSamples < MIN_SAMPLES) ? -1 : Math.round(mRttMs);
+	}
+
+	/**
+	 * @return estimated bandwidth in bytes per second or -1 if there are not enough samples
+	 */
+	public synchronized long getBandwidthBytesPerSecond() {
+		return (mBandwidthSamples < MIN_SAMPLES) ? -1 : Math.round(mBandwidthBytesPerS);
+	}
+
+	/**
+	 * @return {@link Mode#LITE} if the connection is slow, {@link Mode#FULL} otherwise or if
+	 * there are not enough samples
+	 */
+	public synchronized Mode getMode() {
+		return mMode;
+	}
+
+	private void updateMode() {
+		long rtt = getRttMs();
+		long bandwidth = getBandwidthBytesPerSecond();
+		if (mMode == Mode.FULL) {
+			if ((rtt >= 0 && rtt > LITE_RTT_MS) || (bandwidth >= 0 && bandwidth <
+					LITE_BANDWIDTH_BYTES_PER_S)) {
+				mMode = Mode.LITE;
+			}
+		} else {
+			if ((rtt < 0 || rtt < FULL_RTT_MS) && (bandwidth < 0 || bandwidth >
+					FULL_BANDWIDTH_BYTES_PER_S)) {
+				mMode = Mode.FULL;
+			}
+		}
+	}
+
+	private static double average(double average, double sample) {
+		return (average < 0) ? sample : average + WEIGHT * (sample - average);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Parses the answer of Trello's batch endpoint. The answer is an array with one object per
+ * requested URL, keyed by the status code of that request, e.g. {@code [{"200": {...}},
+ * {"404": "..."}]}.
+ * <p/>
+ * Subclasses read the body of a single successful request. Every call site should keep its own
+ * instance, because parsed answers are cached per parser instance (see {@link
+ * TrelloResponse#parse(TrelloAPI.ResponseParser)}).
+ *
+ * @param <T> type of a single result
+ */
+public abstract class BatchParser<T> implements TrelloAPI.ResponseParser<ArrayList<T>> {
+
+	@Override
+	public ArrayList<T> parse(TrelloResponse response) throws IOException {
+		JsonReader reader = response.newJsonReader();
+		try {
+			ArrayList<T> result = new ArrayList<>();
+			reader.beginArray();
+			while (reader.hasNext()) {
+				result.add(readResult(reader));
+			}
+			reader.endArray();
+			return result;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return parsed body of a successful request, null for a failed one
+	 */
+	private T readResult(JsonReader reader) throws IOException {
+		T result = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("200") && reader.peek() != JsonToken.NULL) {
+				result = readItem(reader);
+			} else {
+				reader.skipValue(); // error status or error details
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+	/**
+	 * Reads the body of a single successful request.
+	 *
+	 * @param reader reader positioned at the body
+	 * @return parsed body
+	 * @throws IOException if the body could not be read
+	 */
+	protected abstract T readItem(JsonReader reader) throws IOException;
+}
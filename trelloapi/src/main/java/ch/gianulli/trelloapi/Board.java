@@ -27,12 +27,12 @@ package ch.gianulli.trelloapi;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 
 public class Board implements Parcelable {
 
@@ -47,14 +47,71 @@ public class Board implements Parcelable {
 		}
 	};
 
+	/**
+	 * Open boards with the fields that are read by this class
+	 */
+	public static final Projection DEFAULT_PROJECTION = new Projection("name,prefs", "open",
+			null, null);
+
+	/**
+	 * Open lists of a board with the names and descriptions of their open cards
+	 */
+	public static final Projection DEFAULT_LISTS_PROJECTION = new Projection("name", "open",
+			"open", "name,desc");
+
+	/**
+	 * Open lists of a board with only the names of their open cards, used on slow connections.
+	 * The descriptions are loaded by the session, see {@link TrelloList#getAllCardsAsync}.
+	 */
+	public static final Projection LITE_LISTS_PROJECTION = new Projection("name", "open",
+			"open", "name");
+
 	private static final int STANDARD_COLOR = 0xFF0079BF; // blue
 
+	private static final TrelloAPI.ResponseParser<ArrayList<Board>> BOARDS_PARSER = new TrelloAPI
+			.ResponseParser<ArrayList<Board>>() {
+		@Override
+		public ArrayList<Board> parse(TrelloResponse response) throws IOException {
+			JsonReader reader = response.newJsonReader();
+			try {
+				return readBoards(reader);
+			} finally {
+				reader.close();
+			}
+		}
+	};
+
+	/**
+	 * Reads the cards of a board and counts them per list id
+	 */
+	private static final BatchParser<HashMap<String, Integer>> CARD_COUNT_PARSER = new
+			BatchParser<HashMap<String, Integer>>() {
+				@Override
+				protected HashMap<String, Integer> readItem(JsonReader reader) throws
+						IOException {
+					return readCardCounts(reader);
+				}
+			};
+
 	private String mId;
 
 	private String mName;
 
 	private int mColor;
 
+	/**
+	 * Open lists of this board if they were loaded together with it, otherwise null
+	 */
+	private ArrayList<TrelloList> mLists;
+
+	/**
+	 * Parsers bound to this board. Kept, so that a repeated answer (e.g. after a 304 Not
+	 * Modified) returns the lists parsed before.
+	 */
+	private TrelloAPI.ResponseParser<ArrayList<TrelloList>> mListsParser;
+
+	private TrelloAPI.ResponseParser<TrelloList> mListParser;
+
 	protected Board(String id, String name) {
 		mId = id;
 		mName = name;
@@ -78,7 +135,7 @@ public class Board implements Parcelable {
 	}
 
 	/**
-	 * Returns a list of all boards of the user. Attention: this method makes a synchronous
+	 * Returns a list of all open boards of the user. Attention: this method makes a synchronous
 	 * network request!
 	 *
 	 * @param api
@@ -88,74 +145,394 @@ public class Board implements Parcelable {
 	 */
 	public static ArrayList<Board> listAllBoards(TrelloAPI api) throws
 			TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		return listAllBoards(api, DEFAULT_PROJECTION);
+	}
+
+	/**
+	 * Returns a list of the user's boards. Attention: this method makes a synchronous network
+	 * request!
+	 *
+	 * @param api
+	 * @param projection selects the boards and fields to fetch
+	 * @return list of boards
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static ArrayList<Board> listAllBoards(TrelloAPI api, Projection projection) throws
+			TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		ArrayList<Board> result = api.makeRequest(createBoardsRequest(projection), BOARDS_PARSER);
+		if (result == null) {
+			throw new TrelloNotAccessibleException("Server answer was null.");
+		}
+		return result;
+	}
+
+	/**
+	 * Asynchronous variant of {@link #listAllBoards(TrelloAPI)}.
+	 *
+	 * @param api
+	 * @param callback receives the list of boards
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable listAllBoardsAsync(TrelloAPI api, TrelloCallback<ArrayList<Board>>
+			callback) {
+		return listAllBoardsAsync(api, DEFAULT_PROJECTION, callback);
+	}
 
-		ArrayList<Board> result = null;
+	/**
+	 * Asynchronous variant of {@link #listAllBoards(TrelloAPI, Projection)}.
+	 *
+	 * @param api
+	 * @param projection selects the boards and fields to fetch
+	 * @param callback   receives the list of boards
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable listAllBoardsAsync(TrelloAPI api, Projection projection,
+	                                             TrelloCallback<ArrayList<Board>> callback) {
+		return api.enqueue(createBoardsRequest(projection), BOARDS_PARSER, callback);
+	}
 
-		try {
-			JSONArray array = api.makeJSONArrayRequest("GET", "members/me/boards", null, true);
-			if (array != null) {
-				result = new ArrayList<>(array.length());
+	/**
+	 * Stale-while-revalidate variant of {@link #listAllBoardsAsync(TrelloAPI, TrelloCallback)}:
+	 * the boards of the last visit are delivered at once and then refreshed in the background.
+	 *
+	 * @param api
+	 * @param callback receives the stored and the current list of boards
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable listAllBoardsAsync(TrelloAPI api,
+	                                             RevalidatingCallback<ArrayList<Board>> callback) {
+		return api.enqueueRevalidating(createBoardsRequest(DEFAULT_PROJECTION), BOARDS_PARSER,
+				callback);
+	}
 
-				for (int i = 0; i < array.length(); ++i) {
-					JSONObject board = array.getJSONObject(i);
+	private static TrelloRequest createBoardsRequest(Projection projection) {
+		TrelloRequest request = new TrelloRequest("GET", "members/me/boards", null, true);
+		projection.applyTo(request);
+		return request;
+	}
 
-					// We only have a color
-					if (board.getJSONObject("prefs").getString("backgroundImage").equals("null")) {
-						result.add(new Board(board.getString("id"), board.getString("name"), board
-								.getJSONObject("prefs").getString("backgroundColor")));
-					} else { // background image --> use standard color
-						result.add(new Board(board.getString("id"), board.getString("name"),
-								STANDARD_COLOR));
+	/**
+	 * Loads the open boards of the user together with their open lists and the number of open
+	 * cards in each list. Attention: this method makes synchronous network requests!
+	 * <p/>
+	 * Boards and lists arrive in one request. Trello does not nest cards in the boards of a
+	 * member, so the card counts take a second round trip: one batch request per {@link
+	 * TrelloAPI#MAX_BATCH_SIZE} boards, sent in parallel.
+	 *
+	 * @param api
+	 * @return boards whose lists are available through {@link #getLists()}
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static ArrayList<Board> loadDashboard(TrelloAPI api) throws
+			TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		ArrayList<Board> boards = api.makeRequest(createDashboardRequest(),
+				createDashboardParser());
+		if (!boards.isEmpty()) {
+			setCardCounts(boards, api.makeBatchRequest(createCardCountRequests(boards),
+					CARD_COUNT_PARSER));
+		}
+		return boards;
+	}
+
+	/**
+	 * Asynchronous variant of {@link #loadDashboard(TrelloAPI)}.
+	 *
+	 * @param api
+	 * @param callback receives the boards with their lists
+	 * @return handle that cancels the requests
+	 */
+	public static Cancellable loadDashboardAsync(final TrelloAPI api, final
+	TrelloCallback<ArrayList<Board>> callback) {
+		final DashboardLoader loader = new DashboardLoader();
+		loader.mCurrent = api.enqueue(createDashboardRequest(), createDashboardParser(), new
+				TrelloCallback<ArrayList<Board>>() {
+					@Override
+					public void onSuccess(final ArrayList<Board> boards) {
+						if (boards.isEmpty()) {
+							callback.onSuccess(boards);
+							return;
+						}
+						loader.mCurrent = api.enqueueBatch(createCardCountRequests(boards),
+								CARD_COUNT_PARSER, new TrelloCallback<ArrayList<HashMap<String,
+										Integer>>>() {
+									@Override
+									public void onSuccess(ArrayList<HashMap<String, Integer>>
+											counts) {
+										setCardCounts(boards, counts);
+										callback.onSuccess(boards);
+									}
+
+									@Override
+									public void onError(TrelloException e) {
+										callback.onError(e);
+									}
+								});
 					}
+
+					@Override
+					public void onError(TrelloException e) {
+						callback.onError(e);
+					}
+				});
+		return loader;
+	}
+
+	private static TrelloRequest createDashboardRequest() {
+		TrelloRequest request = new TrelloRequest("GET", "members/me/boards", null, true);
+		DEFAULT_PROJECTION.applyTo(request);
+		request.setQueryArg("lists", "open");
+		request.setQueryArg("list_fields", "name");
+		return request;
+	}
+
+	/**
+	 * @return new parser for every dashboard load. The card counts are set on the parsed lists,
+	 * so the result must not be shared with other callers of the same answer (see {@link
+	 * TrelloResponse#parse(TrelloAPI.ResponseParser)}).
+	 */
+	private static TrelloAPI.ResponseParser<ArrayList<Board>> createDashboardParser() {
+		return new TrelloAPI.ResponseParser<ArrayList<Board>>() {
+			@Override
+			public ArrayList<Board> parse(TrelloResponse response) throws IOException {
+				JsonReader reader = response.newJsonReader();
+				try {
+					return readBoards(reader);
+				} finally {
+					reader.close();
 				}
 			}
-		} catch (JSONException e) {
-			e.printStackTrace();
-			throw new TrelloNotAccessibleException("Server answer was not correctly formatted.");
+		};
+	}
+
+	private static ArrayList<TrelloRequest> createCardCountRequests(ArrayList<Board> boards) {
+		ArrayList<TrelloRequest> requests = new ArrayList<>(boards.size());
+		for (Board board : boards) {
+			TrelloRequest request = new TrelloRequest("GET", "boards/" + board.getId() +
+					"/cards", null, true);
+			request.setQueryArg("filter", "open");
+			request.setQueryArg("fields", "idList");
+			requests.add(request);
 		}
+		return requests;
+	}
 
-		if (result == null) {
-			throw new TrelloNotAccessibleException("Server answer was null.");
+	/**
+	 * @param counts number of cards per list id for each board, null for boards whose cards
+	 *               could not be fetched. Their lists get {@link TrelloList#UNKNOWN_CARD_COUNT}.
+	 */
+	private static void setCardCounts(ArrayList<Board> boards, ArrayList<HashMap<String,
+			Integer>> counts) {
+		for (int i = 0; i < boards.size(); ++i) {
+			HashMap<String, Integer> boardCounts = counts.get(i);
+			if (boards.get(i).mLists == null) {
+				continue;
+			}
+			for (TrelloList list : boards.get(i).mLists) {
+				if (boardCounts == null) {
+					list.setCardCount(TrelloList.UNKNOWN_CARD_COUNT);
+				} else {
+					// Lists without open cards do not appear in the answer
+					Integer count = boardCounts.get(list.getId());
+					list.setCardCount((count == null) ? 0 : count);
+				}
+			}
 		}
+	}
 
+	/**
+	 * Reads an array of cards and counts them per list id.
+	 */
+	private static HashMap<String, Integer> readCardCounts(JsonReader reader) throws IOException {
+		HashMap<String, Integer> counts = new HashMap<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("idList")) {
+					String listId = reader.nextString();
+					Integer count = counts.get(listId);
+					counts.put(listId, (count == null) ? 1 : count + 1);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+		return counts;
+	}
+
+	/**
+	 * Reads an array of boards.
+	 */
+	static ArrayList<Board> readBoards(JsonReader reader) throws IOException {
+		ArrayList<Board> result = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			result.add(readBoard(reader));
+		}
+		reader.endArray();
 		return result;
 	}
 
+	/**
+	 * Reads a single board including its nested lists, if present. Boards with a background
+	 * image get the standard color.
+	 */
+	static Board readBoard(JsonReader reader) throws IOException {
+		String id = null;
+		String name = null;
+		String color = null;
+		boolean hasImage = false;
+		ArrayList<TrelloList> lists = null;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					id = reader.nextString();
+					break;
+				case "name":
+					name = reader.nextString();
+					break;
+				case "prefs":
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String pref = reader.nextName();
+						if (reader.peek() == JsonToken.NULL) {
+							reader.nextNull();
+						} else if (pref.equals("backgroundColor")) {
+							color = reader.nextString();
+						} else if (pref.equals("backgroundImage")) {
+							hasImage = true;
+							reader.skipValue();
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+					break;
+				case "lists":
+					lists = TrelloList.readLists(reader, null);
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		Board board;
+		if (color == null || hasImage) {
+			board = new Board(id, name, STANDARD_COLOR);
+		} else {
+			board = new Board(id, name, color);
+		}
+		if (lists != null) {
+			for (TrelloList list : lists) {
+				list.setBoard(board);
+			}
+			board.mLists = lists;
+		}
+		return board;
+	}
+
 	public ArrayList<TrelloList> getAllLists(TrelloAPI api) throws
 			TrelloNotAuthorizedException, TrelloNotAccessibleException {
-		ArrayList<TrelloList> result = new ArrayList<>();
-
-		try {
-			LinkedHashMap<String, String> args = new LinkedHashMap<>();
-			args.put("cards", "open");
-			args.put("card_fields", "name,desc");
-			JSONArray array = api.makeJSONArrayRequest("GET", "boards/" + mId + "/lists", args,
-					true);
-			if (array != null) {
-				for (int i = 0; i < array.length(); ++i) {
-					JSONObject list = array.getJSONObject(i);
-					JSONArray cardArray = list.getJSONArray("cards");
-					ArrayList<Card> cards = new ArrayList<>(cardArray.length());
-					for (int j = 0; j < cardArray.length(); ++j) {
-						JSONObject card = cardArray.getJSONObject(j);
-						cards.add(new Card(card.getString("id"), null, card.getString("name"),
-								card.getString("desc"))); // list is null for now
-					}
-					TrelloList trelloList = new TrelloList(list.getString("id"), this, list
-							.getString("name"), cards);
-					// add list reference to cards
-					for (Card c : cards) {
-						c.setList(trelloList);
+		return getAllLists(api, DEFAULT_LISTS_PROJECTION);
+	}
+
+	/**
+	 * Attention: this method makes a synchronous network request!
+	 *
+	 * @param api
+	 * @param projection selects the lists, their fields and their cards
+	 * @return lists of this board
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public ArrayList<TrelloList> getAllLists(TrelloAPI api, Projection projection) throws
+			TrelloNotAuthorizedException, TrelloNotAccessibleException {
+		ArrayList<TrelloList> result = api.makeRequest(createListsRequest(projection),
+				getListsParser());
+		return (result == null) ? new ArrayList<TrelloList>() : result;
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getAllLists(TrelloAPI)}.
+	 *
+	 * @param api
+	 * @param callback receives the lists of this board
+	 * @return handle that cancels the request
+	 */
+	public Cancellable getAllListsAsync(TrelloAPI api, TrelloCallback<ArrayList<TrelloList>>
+			callback) {
+		return getAllListsAsync(api, DEFAULT_LISTS_PROJECTION, callback);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getAllLists(TrelloAPI, Projection)}.
+	 *
+	 * @param api
+	 * @param projection selects the lists, their fields and their cards
+	 * @param callback   receives the lists of this board
+	 * @return handle that cancels the request
+	 */
+	public Cancellable getAllListsAsync(TrelloAPI api, Projection projection,
+	                                    TrelloCallback<ArrayList<TrelloList>> callback) {
+		return api.enqueue(createListsRequest(projection), getListsParser(), callback);
+	}
+
+	/**
+	 * Stale-while-revalidate variant of {@link #getAllListsAsync(TrelloAPI, TrelloCallback)}: the
+	 * lists of the last visit are delivered at once and then refreshed in the background. On a
+	 * slow connection (see {@link BandwidthEstimator}) the cards come without descriptions.
+	 *
+	 * @param api
+	 * @param callback receives the stored and the current lists of this board
+	 * @return handle that cancels the request
+	 */
+	public Cancellable getAllListsAsync(TrelloAPI api,
+	                                    RevalidatingCallback<ArrayList<TrelloList>> callback) {
+		Projection projection = (api.getBandwidthEstimator().getMode() == BandwidthEstimator
+				.Mode.LITE) ? LITE_LISTS_PROJECTION : DEFAULT_LISTS_PROJECTION;
+		return api.enqueueRevalidating(createListsRequest(projection), getListsParser(),
+				callback);
+	}
+
+	private TrelloRequest createListsRequest(Projection projection) {
+		TrelloRequest request = new TrelloRequest("GET", "boards/" + mId + "/lists", null, true);
+		projection.applyTo(request);
+		return request;
+	}
+
+	private synchronized TrelloAPI.ResponseParser<ArrayList<TrelloList>> getListsParser() {
+		if (mListsParser == null) {
+			mListsParser = new TrelloAPI.ResponseParser<ArrayList<TrelloList>>() {
+				@Override
+				public ArrayList<TrelloList> parse(TrelloResponse response) throws IOException {
+					JsonReader reader = response.newJsonReader();
+					try {
+						return TrelloList.readLists(reader, Board.this);
+					} finally {
+						reader.close();
 					}
-					result.add(trelloList);
 				}
-			}
-
-		} catch (JSONException e) {
-			throw new TrelloNotAccessibleException("Server answer was not correctly formatted.");
+			};
 		}
+		return mListsParser;
+	}
 
-		return result;
+	/**
+	 * @return parser of single lists of this board, see {@link TrelloList#getList(TrelloAPI,
+	 * Board, String)}
+	 */
+	synchronized TrelloAPI.ResponseParser<TrelloList> getListParser() {
+		if (mListParser == null) {
+			mListParser = TrelloList.createListParser(this);
+		}
+		return mListParser;
 	}
 
 	public String getId() {
@@ -178,6 +555,33 @@ public class Board implements Parcelable {
 		return mColor;
 	}
 
+	/**
+	 * @return open lists if this board was loaded by {@link #loadDashboard(TrelloAPI)},
+	 * otherwise null. Lists are not kept when the board is parcelled.
+	 */
+	public ArrayList<TrelloList> getLists() {
+		return mLists;
+	}
+
+	/**
+	 * @return number of open cards on this board, or {@link TrelloList#UNKNOWN_CARD_COUNT} if
+	 * the lists are not loaded or the cards of a list could not be counted
+	 */
+	public int getCardCount() {
+		if (mLists == null) {
+			return TrelloList.UNKNOWN_CARD_COUNT;
+		}
+		int count = 0;
+		for (TrelloList list : mLists) {
+			int listCount = list.getCardCount();
+			if (listCount == TrelloList.UNKNOWN_CARD_COUNT) {
+				return TrelloList.UNKNOWN_CARD_COUNT;
+			}
+			count += listCount;
+		}
+		return count;
+	}
+
 	public void setColor(int color) {
 		mColor = color;
 	}
@@ -196,6 +600,28 @@ public class Board implements Parcelable {
 		}
 	}
 
+	/**
+	 * Handle of a dashboard load; cancels whichever request is running. Only used on the main
+	 * thread.
+	 */
+	private static class DashboardLoader implements Cancellable {
+
+		private Cancellable mCurrent;
+
+		private boolean mCanceled = false;
+
+		@Override
+		public void cancel() {
+			mCanceled = true;
+			mCurrent.cancel();
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return mCanceled;
+		}
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o instanceof Board) {
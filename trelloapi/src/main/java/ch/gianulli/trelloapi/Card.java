@@ -24,14 +24,15 @@
 
 package ch.gianulli.trelloapi;
 
-import android.os.AsyncTask;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.util.JsonReader;
 import android.util.Log;
 import android.widget.Toast;
 
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.LinkedHashMap;
 
 public class Card implements Parcelable {
@@ -55,6 +56,11 @@ public class Card implements Parcelable {
 
 	private String mDesc;
 
+	/**
+	 * Position of the card in its list, only known if the "pos" field was requested
+	 */
+	private double mPos = 0;
+
 	public Card(String id, TrelloList list, String name, String desc) {
 		mId = id;
 		mList = list;
@@ -65,6 +71,42 @@ public class Card implements Parcelable {
 	private Card(Parcel in) {
 		this(in.readString(), (TrelloList) in.readParcelable(null), in.readString(), in.readString
 				());
+		mPos = in.readDouble();
+	}
+
+	/**
+	 * Reads a single card. The list reference is not set.
+	 */
+	static Card readCard(JsonReader reader) throws IOException {
+		String id = null;
+		String name = null;
+		String desc = null;
+		double pos = 0;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					id = reader.nextString();
+					break;
+				case "name":
+					name = reader.nextString();
+					break;
+				case "desc":
+					desc = reader.nextString();
+					break;
+				case "pos":
+					pos = reader.nextDouble();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		Card card = new Card(id, null, name, desc);
+		card.mPos = pos;
+		return card;
 	}
 
 	/**
@@ -77,34 +119,21 @@ public class Card implements Parcelable {
 	 * @param listId
 	 */
 	public void moveToListAsync(final TrelloAPI api, final String listId) {
-		new AsyncTask<Void, Void, Boolean>() {
-			@Override
-			protected Boolean doInBackground(Void... voids) {
-				try {
-					LinkedHashMap<String, String> args = new LinkedHashMap<>();
-					args.put("value", listId);
-					JSONObject result = api.makeJSONObjectRequest("PUT", "cards/" + mId +
-							"/idList", args, true);
-					if (result == null) {
-						Log.i("TrelloAPI", "Error occurred when moving card: null result");
-						return false;
+		LinkedHashMap<String, String> args = new LinkedHashMap<>();
+		args.put("value", listId);
+		api.makeJSONObjectRequestAsync("PUT", "cards/" + mId + "/idList", args, true, new
+				TrelloCallback<JSONObject>() {
+					@Override
+					public void onSuccess(JSONObject result) {
 					}
-				} catch (TrelloNotAccessibleException | TrelloNotAuthorizedException e) {
-					Log.i("TrelloAPI", "Error occurred when moving card: ", e);
-					return false;
-				}
-
-				return true;
-			}
 
-			@Override
-			protected void onPostExecute(Boolean successful) {
-				if (!successful) {
-					Toast.makeText(api.getContext(), "Error: Card could not be moved.", Toast
-							.LENGTH_LONG).show();
-				}
-			}
-		}.execute();
+					@Override
+					public void onError(TrelloException e) {
+						Log.i("TrelloAPI", "Error occurred when moving card: ", e);
+						Toast.makeText(api.getContext(), "Error: Card could not be moved.", Toast
+								.LENGTH_LONG).show();
+					}
+				});
 	}
 
 	public String getId() {
@@ -139,6 +168,13 @@ public class Card implements Parcelable {
 		mDesc = desc;
 	}
 
+	/**
+	 * @return position of the card in its list; cards are shown in ascending order
+	 */
+	public double getPos() {
+		return mPos;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (o instanceof Card) {
@@ -158,5 +194,6 @@ public class Card implements Parcelable {
 		dest.writeParcelable(mList, 0);
 		dest.writeString(mName);
 		dest.writeString(mDesc);
+		dest.writeDouble(mPos);
 	}
 }
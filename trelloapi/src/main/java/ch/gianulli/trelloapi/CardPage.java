@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.ArrayList;
+
+/**
+ * One page of the cards of a list, see {@link TrelloList#getCardPage(TrelloAPI, String,
+ * Projection, String, int)}.
+ */
+public class CardPage {
+
+	private final ArrayList<Card> mCards;
+
+	private final String mNextCursor;
+
+	/**
+	 * @param cards      cards of this page
+	 * @param nextCursor cursor of the next page, or null if this is the last page
+	 */
+	public CardPage(ArrayList<Card> cards, String nextCursor) {
+		mCards = cards;
+		mNextCursor = nextCursor;
+	}
+
+	public ArrayList<Card> getCards() {
+		return mCards;
+	}
+
+	/**
+	 * @return cursor to pass for the next page, or null if this is the last page
+	 */
+	public String getNextCursor() {
+		return mNextCursor;
+	}
+
+	public boolean hasNextPage() {
+		return mNextCursor != null;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.ArrayList;
+
+/**
+ * Receives the cards loaded by {@link TrelloList#getAllCardsAsync(TrelloAPI, String,
+ * Projection, int, CardPageCallback)}. All methods are called on the main thread.
+ */
+public interface CardPageCallback {
+
+	/**
+	 * Called for every page as it arrives, e.g. to show the progress.
+	 *
+	 * @param page cards of the page, in the order of their ids
+	 */
+	void onPage(CardPage page);
+
+	/**
+	 * @param cards all open cards of the list, sorted by position
+	 */
+	void onComplete(ArrayList<Card> cards);
+
+	/**
+	 * @param e {@link TrelloNotAuthorizedException} if the token is not valid, {@link
+	 *          TrelloNotAccessibleException} otherwise
+	 */
+	void onError(TrelloException e);
+}
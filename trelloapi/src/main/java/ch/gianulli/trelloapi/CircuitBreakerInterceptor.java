@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Fails requests immediately while Trello is unreachable instead of letting every request wait
+ * for its own timeout.
+ * <p/>
+ * After a number of consecutive failures (network errors or 5xx answers) the circuit opens and
+ * requests fail with a {@link CircuitOpenException} for a cool-down period. Afterwards a single
+ * probe request is let through ("half-open"): if it succeeds, the circuit closes again,
+ * otherwise another cool-down period starts.
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+	private static final long DEFAULT_COOL_DOWN_MS = 15000;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int mFailureThreshold;
+
+	private final long mCoolDownMs;
+
+	private State mState = State.CLOSED;
+
+	private int mConsecutiveFailures = 0;
+
+	private long mOpenUntil = 0;
+
+	private boolean mProbeInFlight = false;
+
+	public CircuitBreakerInterceptor() {
+		this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN_MS);
+	}
+
+	/**
+	 * @param failureThreshold number of consecutive failures that open the circuit
+	 * @param coolDownMs       time during which requests fail immediately
+	 */
+	public CircuitBreakerInterceptor(int failureThreshold, long coolDownMs) {
+		mFailureThreshold = failureThreshold;
+		mCoolDownMs = coolDownMs;
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		boolean allowed;
+		boolean isProbe = false;
+		synchronized (this) {
+			if (mState == State.OPEN && SystemClock.elapsedRealtime() >= mOpenUntil) {
+				mState = State.HALF_OPEN;
+			}
+			if (mState == State.CLOSED) {
+				allowed = true;
+			} else if (mState == State.HALF_OPEN && !mProbeInFlight) {
+				allowed = true;
+				isProbe = true;
+				mProbeInFlight = true;
+			} else {
+				allowed = false;
+			}
+		}
+
+		if (allowed) {
+			proceed(chain, callback, isProbe);
+		} else {
+			callback.onError(new CircuitOpenException("Trello is not reachable, request was " +
+					"not sent."));
+		}
+	}
+
+	/**
+	 * @return current state
+	 */
+	public synchronized State getState() {
+		if (mState == State.OPEN && SystemClock.elapsedRealtime() >= mOpenUntil) {
+			return State.HALF_OPEN;
+		}
+		return mState;
+	}
+
+	/**
+	 * Closes the circuit, e.g. because the device has just reconnected.
+	 */
+	public synchronized void reset() {
+		mState = State.CLOSED;
+		mConsecutiveFailures = 0;
+		mProbeInFlight = false;
+	}
+
+	private void proceed(Chain chain, final TrelloCallback<TrelloResponse> callback, final
+	boolean isProbe) {
+		if (isProbe) {
+			// A cancelled probe never completes; let the next request probe instead
+			chain.request().addCancelListener(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (CircuitBreakerInterceptor.this) {
+						mProbeInFlight = false;
+					}
+				}
+			});
+		}
+
+		chain.proceed(chain.request(), new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				if (response.getStatusCode() >= 500) {
+					recordFailure(isProbe);
+				} else {
+					recordSuccess(isProbe);
+				}
+				callback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				if (e instanceof TrelloNotAccessibleException) {
+					recordFailure(isProbe);
+				}
+				callback.onError(e);
+			}
+		});
+	}
+
+	private synchronized void recordSuccess(boolean isProbe) {
+		if (isProbe) {
+			mProbeInFlight = false;
+		}
+		if (mState != State.CLOSED) {
+			Log.i(TAG, "Trello is reachable again, closing circuit");
+		}
+		mState = State.CLOSED;
+		mConsecutiveFailures = 0;
+	}
+
+	private synchronized void recordFailure(boolean isProbe) {
+		if (isProbe) {
+			mProbeInFlight = false;
+		}
+		++mConsecutiveFailures;
+		if (isProbe || (mState == State.CLOSED && mConsecutiveFailures >= mFailureThreshold)) {
+			Log.i(TAG, "Trello is not reachable, opening circuit for " + mCoolDownMs + " ms");
+			mState = State.OPEN;
+			mOpenUntil = SystemClock.elapsedRealtime() + mCoolDownMs;
+		}
+	}
+}
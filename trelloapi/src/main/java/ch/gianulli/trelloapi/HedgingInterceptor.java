@@ -0,0 +1,375 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cuts the tail latency of GET requests that opted in with {@link TrelloRequest#setHedged
+ * (boolean)}. If the answer takes longer than a high percentile of the recent latencies of the
+ * same endpoint, a second copy of the request is sent. The first answer wins and the other copy
+ * is cancelled.
+ * <p/>
+ * Every request to an endpoint earns a tenth of a hedge, so hedging adds at most about 10% load
+ * per endpoint, even if the network is slow altogether. On top of that, the copies sent across
+ * all endpoints never exceed 10% of the recent GET requests, which also caps bursts.
+ * <p/>
+ * The percentile is computed from the latency of the first copy, also if the second copy wins.
+ * Then the time the first copy had taken until it was cancelled is recorded, which is a lower
+ * bound of its latency. Recording the winner instead would make the percentile drift down.
+ */
+public class HedgingInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	/**
+	 * Number of recent latencies kept per endpoint
+	 */
+	private static final int SAMPLE_COUNT = 64;
+
+	/**
+	 * Latencies needed before the percentile is trusted
+	 */
+	private static final int MIN_SAMPLES = 16;
+
+	private static final double DEFAULT_PERCENTILE = 0.95;
+
+	/**
+	 * Hedging delay used while there are too few samples
+	 */
+	private static final long DEFAULT_DELAY_MS = 1000;
+
+	private static final long MIN_DELAY_MS = 50;
+
+	private static final double HEDGES_PER_REQUEST = 0.1;
+
+	private static final double MAX_HEDGE_BUDGET = 3;
+
+	/**
+	 * Maximum share of second copies among the recent GET requests of all endpoints
+	 */
+	private static final double MAX_HEDGE_RATE = 0.1;
+
+	/**
+	 * Number of requests after which the request and hedge counts are halved, so that the rate
+	 * follows the recent requests
+	 */
+	private static final int RATE_WINDOW = 1000;
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final double mPercentile;
+
+	private final HashMap<String, Endpoint> mEndpoints = new HashMap<>();
+
+	private double mRequestCount = 0;
+
+	private double mHedgeCount = 0;
+
+	/**
+	 * @param executor executor used to send the second copies
+	 */
+	public HedgingInterceptor(ScheduledExecutorService executor) {
+		this(executor, DEFAULT_PERCENTILE);
+	}
+
+	/**
+	 * @param executor   executor used to send the second copies
+	 * @param percentile latency percentile (between 0 and 1) after which a copy is sent
+	 */
+	public HedgingInterceptor(ScheduledExecutorService executor, double percentile) {
+		mExecutor = executor;
+		mPercentile = percentile;
+	}
+
+	@Override
+	public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+		TrelloRequest request = chain.request();
+		if (!request.getMethod().equals("GET")) {
+			chain.proceed(request, callback);
+			return;
+		}
+
+		final Endpoint endpoint;
+		long delay;
+		synchronized (this) {
+			endpoint = getEndpoint(request.getEndpoint());
+			endpoint.earnHedge();
+			if (++mRequestCount >= RATE_WINDOW) {
+				mRequestCount /= 2;
+				mHedgeCount /= 2;
+			}
+			delay = endpoint.getDelay(mPercentile);
+		}
+
+		if (request.isHedged()) {
+			new HedgedCall(chain, callback, endpoint).start(delay);
+		} else {
+			// Only measure the latency
+			final long start = SystemClock.elapsedRealtime();
+			chain.proceed(request, new TrelloCallback<TrelloResponse>() {
+				@Override
+				public void onSuccess(TrelloResponse response) {
+					record(endpoint, SystemClock.elapsedRealtime() - start);
+					callback.onSuccess(response);
+				}
+
+				@Override
+				public void onError(TrelloException e) {
+					callback.onError(e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * @param endpoint e.g. "lists/{id}", see {@link TrelloRequest#getEndpoint()}
+	 * @return current hedging delay of the endpoint in milliseconds
+	 */
+	public synchronized long getDelay(String endpoint) {
+		return getEndpoint(endpoint).getDelay(mPercentile);
+	}
+
+	private Endpoint getEndpoint(String name) {
+		Endpoint endpoint = mEndpoints.get(name);
+		if (endpoint == null) {
+			endpoint = new Endpoint();
+			mEndpoints.put(name, endpoint);
+		}
+		return endpoint;
+	}
+
+	private synchronized void record(Endpoint endpoint, long latencyMs) {
+		endpoint.addSample(latencyMs);
+	}
+
+	private synchronized boolean spendHedge(Endpoint endpoint) {
+		if (mHedgeCount + 1 > MAX_HEDGE_RATE * mRequestCount || !endpoint.spendHedge()) {
+			return false;
+		}
+		++mHedgeCount;
+		return true;
+	}
+
+	/**
+	 * Sends the request and, if needed, its second copy. Both are copies of the original
+	 * request, so that each can be cancelled on its own.
+	 */
+	private class HedgedCall {
+
+		private final Chain mChain;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		private final Endpoint mEndpoint;
+
+		private TrelloRequest mPrimary;
+
+		private TrelloRequest mHedge;
+
+		private ScheduledFuture<?> mTimer;
+
+		private long mPrimaryStart;
+
+		private int mPending = 0;
+
+		private boolean mDone = false;
+
+		public HedgedCall(Chain chain, TrelloCallback<TrelloResponse> callback, Endpoint
+				endpoint) {
+			mChain = chain;
+			mCallback = callback;
+			mEndpoint = endpoint;
+		}
+
+		public void start(long delay) {
+			TrelloRequest primary = mChain.request().copy();
+			synchronized (this) {
+				mPrimary = primary;
+				mPending = 1;
+				mPrimaryStart = SystemClock.elapsedRealtime();
+			}
+			mChain.request().addCancelListener(new Runnable() {
+				@Override
+				public void run() {
+					cancel();
+				}
+			});
+			send(primary);
+
+			ScheduledFuture<?> timer = mExecutor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					hedge();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+			synchronized (this) {
+				mTimer = timer;
+			}
+		}
+
+		private void hedge() {
+			synchronized (this) {
+				if (mDone || mChain.request().isCanceled()) {
+					return;
+				}
+			}
+			if (!spendHedge(mEndpoint)) {
+				return;
+			}
+
+			TrelloRequest hedge = mChain.request().copy();
+			synchronized (this) {
+				if (mDone) {
+					return;
+				}
+				mHedge = hedge;
+				++mPending;
+			}
+			Log.d(TAG, mChain.request() + " is late, sending a second copy");
+			send(hedge);
+		}
+
+		private void send(final TrelloRequest attempt) {
+			mChain.proceed(attempt, new TrelloCallback<TrelloResponse>() {
+				@Override
+				public void onSuccess(TrelloResponse response) {
+					finish(attempt, response, null);
+				}
+
+				@Override
+				public void onError(TrelloException e) {
+					finish(attempt, null, e);
+				}
+			});
+		}
+
+		private void finish(TrelloRequest attempt, TrelloResponse response, TrelloException
+				error) {
+			TrelloRequest loser;
+			ScheduledFuture<?> timer;
+			long primaryLatency;
+			synchronized (this) {
+				if (mDone) {
+					return;
+				}
+				--mPending;
+				if (response == null && mPending > 0) {
+					// Wait for the other copy
+					return;
+				}
+				mDone = true;
+				loser = (attempt == mPrimary) ? mHedge : mPrimary;
+				timer = mTimer;
+				primaryLatency = SystemClock.elapsedRealtime() - mPrimaryStart;
+			}
+
+			if (response != null) {
+				// Latency of the first copy, or a lower bound of it if the second copy won
+				record(mEndpoint, primaryLatency);
+			}
+
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			if (loser != null) {
+				loser.cancel();
+			}
+			if (response != null) {
+				mCallback.onSuccess(response);
+			} else {
+				mCallback.onError(error);
+			}
+		}
+
+		private void cancel() {
+			TrelloRequest primary;
+			TrelloRequest hedge;
+			ScheduledFuture<?> timer;
+			synchronized (this) {
+				mDone = true;
+				primary = mPrimary;
+				hedge = mHedge;
+				timer = mTimer;
+			}
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			primary.cancel();
+			if (hedge != null) {
+				hedge.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Recent latencies and hedge budget of one endpoint. Not thread-safe.
+	 */
+	private static class Endpoint {
+
+		private final long[] mSamples = new long[SAMPLE_COUNT];
+
+		private int mSampleCount = 0;
+
+		private int mNextSample = 0;
+
+		private double mHedgeBudget = 1;
+
+		public void addSample(long latencyMs) {
+			mSamples[mNextSample] = latencyMs;
+			mNextSample = (mNextSample + 1) % SAMPLE_COUNT;
+			mSampleCount = Math.min(mSampleCount + 1, SAMPLE_COUNT);
+		}
+
+		public long getDelay(double percentile) {
+			if (mSampleCount < MIN_SAMPLES) {
+				return DEFAULT_DELAY_MS;
+			}
+			long[] sorted = Arrays.copyOf(mSamples, mSampleCount);
+			Arrays.sort(sorted);
+			int index = Math.min(mSampleCount - 1, (int) (percentile * mSampleCount));
+			return Math.max(MIN_DELAY_MS, sorted[index]);
+		}
+
+		public void earnHedge() {
+			mHedgeBudget = Math.min(MAX_HEDGE_BUDGET, mHedgeBudget + HEDGES_PER_REQUEST);
+		}
+
+		public boolean spendHedge() {
+			if (mHedgeBudget < 1) {
+				return false;
+			}
+			mHedgeBudget -= 1;
+			return true;
+		}
+	}
+}
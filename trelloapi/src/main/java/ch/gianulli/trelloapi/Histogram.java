@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Histogram of non-negative values with a fixed relative precision, in the manner of an HDR
+ * histogram: values below {@value #LINEAR_LIMIT} are counted exactly, larger ones in buckets
+ * whose width is 1/16 of their magnitude. Recording is cheap and the memory use does not depend
+ * on the number of values, so percentiles such as p50 and p99 can be tracked indefinitely.
+ */
+public class Histogram {
+
+	/**
+	 * Number of bits that distinguish values inside a power of two, i.e. precision 2^-4
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int LINEAR_LIMIT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Values are clamped to 2^MAX_BITS - 1
+	 */
+	private static final int MAX_BITS = 40;
+
+	private final long[] mCounts = new long[getIndex((1L << MAX_BITS) - 1) + 1];
+
+	private long mCount = 0;
+
+	private long mSum = 0;
+
+	private long mMin = Long.MAX_VALUE;
+
+	private long mMax = 0;
+
+	/**
+	 * @param value value to count, negative values are counted as 0
+	 */
+	public synchronized void record(long value) {
+		value = Math.min(Math.max(0, value), (1L << MAX_BITS) - 1);
+		++mCounts[getIndex(value)];
+		++mCount;
+		mSum += value;
+		mMin = Math.min(mMin, value);
+		mMax = Math.max(mMax, value);
+	}
+
+	public synchronized long getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return smallest value or 0 if nothing has been recorded
+	 */
+	public synchronized long getMin() {
+		return (mCount == 0) ? 0 : mMin;
+	}
+
+	/**
+	 * @return largest value or 0 if nothing has been recorded
+	 */
+	public synchronized long getMax() {
+		return mMax;
+	}
+
+	/**
+	 * @return average value or 0 if nothing has been recorded
+	 */
+	public synchronized double getMean() {
+		return (mCount == 0) ? 0 : (double) mSum / mCount;
+	}
+
+	/**
+	 * @param percentile e.g. 99 for the 99th percentile
+	 * @return upper bound of the bucket that contains the percentile, at most the largest value,
+	 * or 0 if nothing has been recorded
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (mCount == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * mCount));
+		long seen = 0;
+		for (int i = 0; i < mCounts.length; ++i) {
+			seen += mCounts[i];
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), mMax);
+			}
+		}
+		return mMax;
+	}
+
+	public synchronized void reset() {
+		for (int i = 0; i < mCounts.length; ++i) {
+			mCounts[i] = 0;
+		}
+		mCount = 0;
+		mSum = 0;
+		mMin = Long.MAX_VALUE;
+		mMax = 0;
+	}
+
+	private static int getIndex(long value) {
+		int bits = 64 - Long.numberOfLeadingZeros(value);
+		if (bits <= SUB_BUCKET_BITS) {
+			return (int) value;
+		}
+		int shift = bits - SUB_BUCKET_BITS;
+		return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+	}
+
+	private static long getUpperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+		long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
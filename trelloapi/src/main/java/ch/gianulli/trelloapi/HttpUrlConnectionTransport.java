@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * {@link Transport} that uses {@link HttpURLConnection} directly on a pool of its own threads,
+ * without Volley's queue and dispatchers in between. Answers are delivered on these threads.
+ */
+public class HttpUrlConnectionTransport implements Transport {
+
+	private final String mBaseUrl;
+
+	private final SSLSocketFactory mSslSocketFactory;
+
+	private final ExecutorService mExecutor;
+
+	private final int mThreads;
+
+	/**
+	 * Closes the connections of cancelled requests; closing may block
+	 */
+	private final ExecutorService mAbortExecutor;
+
+	/**
+	 * @param baseUrl e.g. "https://trello.com/1/"
+	 * @param threads number of network threads
+	 */
+	public HttpUrlConnectionTransport(String baseUrl, int threads) {
+		this(baseUrl, threads, null);
+	}
+
+	/**
+	 * @param baseUrl          e.g. "https://trello.com/1/"
+	 * @param threads          number of network threads
+	 * @param sslSocketFactory factory for HTTPS connections, e.g. {@link
+	 *                         TrelloAPI#getSslSocketFactory()}; null for the default
+	 */
+	public HttpUrlConnectionTransport(String baseUrl, int threads, SSLSocketFactory
+			sslSocketFactory) {
+		mBaseUrl = baseUrl;
+		mSslSocketFactory = sslSocketFactory;
+		mThreads = threads;
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TrelloAPI-Network");
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		mExecutor = Executors.newFixedThreadPool(threads, threadFactory);
+		mAbortExecutor = Executors.newSingleThreadExecutor(threadFactory);
+	}
+
+	@Override
+	public int getMaxConcurrentRequests() {
+		return mThreads;
+	}
+
+	@Override
+	public void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		if (request.isCanceled()) {
+			return;
+		}
+
+		final Future<?> future = mExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				send(request, callback);
+			}
+		});
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		});
+	}
+
+	private void send(TrelloRequest request, TrelloCallback<TrelloResponse> callback) {
+		if (request.isCanceled()) {
+			return;
+		}
+
+		long start = SystemClock.elapsedRealtime();
+		TrelloResponse response;
+		try {
+			final HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl
+					(mBaseUrl)).openConnection();
+			request.addCancelListener(new Runnable() {
+				@Override
+				public void run() {
+					mAbortExecutor.execute(new Runnable() {
+						@Override
+						public void run() {
+							connection.disconnect();
+						}
+					});
+				}
+			});
+
+			if (mSslSocketFactory != null && connection instanceof HttpsURLConnection) {
+				((HttpsURLConnection) connection).setSSLSocketFactory(mSslSocketFactory);
+			}
+			connection.setConnectTimeout(VolleyTransport.TIMEOUT_MS);
+			connection.setReadTimeout(VolleyTransport.TIMEOUT_MS);
+			connection.setUseCaches(false);
+			connection.setRequestMethod(request.getMethod());
+			for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+				connection.setRequestProperty(header.getKey(), header.getValue());
+			}
+
+			int statusCode = connection.getResponseCode();
+			InputStream in = (statusCode >= 400) ? connection.getErrorStream() : connection
+					.getInputStream();
+			byte[] data = (in == null) ? null : readFully(in);
+			response = new TrelloResponse(statusCode, getHeaders(connection), data, SystemClock
+					.elapsedRealtime() - start);
+		} catch (SocketTimeoutException e) {
+			if (!request.isCanceled()) {
+				callback.onError(new TrelloNotAccessibleException("Network request timed out"));
+			}
+			return;
+		} catch (IOException e) {
+			if (!request.isCanceled()) {
+				callback.onError(new TrelloNotAccessibleException("Device is not connected to " +
+						"the internet."));
+			}
+			return;
+		}
+
+		if (!request.isCanceled()) {
+			callback.onSuccess(response);
+		}
+	}
+
+	/**
+	 * @return first value of every header, like Volley
+	 */
+	private static Map<String, String> getHeaders(HttpURLConnection connection) {
+		HashMap<String, String> headers = new HashMap<>();
+		for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			// The status line has no name
+			if (header.getKey() != null && !header.getValue().isEmpty()) {
+				headers.put(header.getKey(), header.getValue().get(0));
+			}
+		}
+		return headers;
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
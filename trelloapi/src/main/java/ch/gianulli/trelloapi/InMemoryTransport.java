@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Transport} that answers requests with canned responses instead of using the network.
+ * Requests are matched by method and path; the query arguments are ignored. Unknown requests
+ * are answered with 404. Every request is recorded, see {@link #getRequests()}.
+ */
+public class InMemoryTransport implements Transport {
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final HashMap<String, TrelloResponse> mResponses = new HashMap<>();
+
+	private final ArrayList<TrelloRequest> mRequests = new ArrayList<>();
+
+	private long mLatencyMs = 0;
+
+	/**
+	 * @param executor executor that delivers the answers, e.g. {@link TrelloAPI#getExecutor()}
+	 */
+	public InMemoryTransport(ScheduledExecutorService executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * @param method   Either GET, POST, PUT or DELETE
+	 * @param path     e.g. "lists/[idList]"
+	 * @param response answer to all requests with this method and path
+	 */
+	public synchronized void addResponse(String method, String path, TrelloResponse response) {
+		mResponses.put(method + " " + path, response);
+	}
+
+	/**
+	 * @param method     Either GET, POST, PUT or DELETE
+	 * @param path       e.g. "lists/[idList]"
+	 * @param statusCode HTTP status code of the answer
+	 * @param json       body of the answer
+	 */
+	public void addResponse(String method, String path, int statusCode, String json) {
+		HashMap<String, String> headers = new HashMap<>();
+		headers.put("Content-Type", "application/json; charset=utf-8");
+		try {
+			addResponse(method, path, new TrelloResponse(statusCode, headers, json.getBytes
+					("UTF-8"), 0));
+		} catch (UnsupportedEncodingException e) {
+			// never happens
+		}
+	}
+
+	/**
+	 * @param latencyMs time until each answer is delivered
+	 */
+	public synchronized void setLatency(long latencyMs) {
+		mLatencyMs = latencyMs;
+	}
+
+	/**
+	 * @return all requests received so far, in order
+	 */
+	public synchronized List<TrelloRequest> getRequests() {
+		return new ArrayList<>(mRequests);
+	}
+
+	/**
+	 * @return unlimited, answers do not compete for a network
+	 */
+	@Override
+	public int getMaxConcurrentRequests() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		TrelloResponse canned;
+		long latency;
+		synchronized (this) {
+			mRequests.add(request);
+			canned = mResponses.get(request.getMethod() + " " + request.getPath());
+			latency = mLatencyMs;
+		}
+
+		if (canned == null) {
+			Map<String, String> headers = new HashMap<>();
+			headers.put("Content-Type", "text/plain; charset=utf-8");
+			canned = new TrelloResponse(404, headers, "The requested resource was not found."
+					.getBytes(), 0);
+		}
+
+		final TrelloResponse response = canned;
+		final ScheduledFuture<?> future = mExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (!request.isCanceled()) {
+					callback.onSuccess(response);
+				}
+			}
+		}, latency, TimeUnit.MILLISECONDS);
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		});
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Step in the request pipeline of {@link TrelloAPI}. Interceptors are called in the order of
+ * {@link TrelloAPI#getInterceptors()}; each one either passes the request on by calling {@link
+ * Chain#proceed(TrelloRequest, TrelloCallback)} or answers it itself. The last step sends the
+ * request over the network.
+ * <p/>
+ * Interceptors are called on background threads and must not block.
+ */
+public interface Interceptor {
+
+	/**
+	 * @param chain    gives access to the request and the next step
+	 * @param callback has to be called exactly once with the response or an error
+	 */
+	void intercept(Chain chain, TrelloCallback<TrelloResponse> callback);
+
+	interface Chain {
+
+		/**
+		 * @return request as passed on by the previous step
+		 */
+		TrelloRequest request();
+
+		/**
+		 * Passes the request on to the next step.
+		 *
+		 * @param request  request to send, usually {@link #request()}
+		 * @param callback receives the response of the next step
+		 */
+		void proceed(TrelloRequest request, TrelloCallback<TrelloResponse> callback);
+	}
+}
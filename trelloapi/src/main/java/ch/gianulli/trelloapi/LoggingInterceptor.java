@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Logs method, endpoint, status and duration of every request. URLs are not logged because they
+ * contain the access token.
+ */
+public class LoggingInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	@Override
+	public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+		final TrelloRequest request = chain.request();
+		final long start = SystemClock.elapsedRealtime();
+		chain.proceed(request, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				if (Log.isLoggable(TAG, Log.DEBUG)) {
+					Log.d(TAG, request + " -> " + response.getStatusCode() + " (" + response
+							.getData().length + " bytes, " + (SystemClock.elapsedRealtime() -
+							start) + " ms)");
+				}
+				callback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				if (Log.isLoggable(TAG, Log.DEBUG)) {
+					Log.d(TAG, request + " failed after " + (SystemClock.elapsedRealtime() -
+							start) + " ms: " + e.getMessage());
+				}
+				callback.onError(e);
+			}
+		});
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles requests immediately while the device is offline instead of waiting for the network
+ * to fail:
+ * <ul>
+ * <li>GET requests are answered with the last stored answer (see {@link
+ * RevalidationInterceptor}), if there is one.</li>
+ * <li>Idempotent writes (e.g. moving a card) are deferred and sent as soon as the device is
+ * online again. A write that has waited for {@value #DEFAULT_MAX_DEFER_MS} ms, or that finds
+ * {@value #DEFAULT_MAX_DEFERRED} writes waiting, fails with a {@link
+ * TrelloNotAccessibleException}, so that the caller learns about it.</li>
+ * <li>All other requests fail with a {@link TrelloNotAccessibleException}.</li>
+ * </ul>
+ */
+public class OfflineInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	static final int DEFAULT_MAX_DEFERRED = 100;
+
+	static final long DEFAULT_MAX_DEFER_MS = 5 * 60 * 1000;
+
+	private volatile ConnectivityMonitor mMonitor;
+
+	private final RevalidationInterceptor mCache;
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final int mMaxDeferred;
+
+	private final long mMaxDeferMs;
+
+	private final ArrayList<DeferredRequest> mDeferred = new ArrayList<>();
+
+	private final ConnectivityMonitor.Listener mListener = new ConnectivityMonitor.Listener() {
+		@Override
+		public void onConnectivityChanged(boolean isConnected) {
+			if (isConnected) {
+				flush();
+			}
+		}
+	};
+
+	/**
+	 * @param monitor  source of the connectivity state
+	 * @param cache    interceptor that stores the answers of GET requests
+	 * @param executor executor used to send deferred requests and to let them expire
+	 */
+	public OfflineInterceptor(ConnectivityMonitor monitor, RevalidationInterceptor cache,
+	                          ScheduledExecutorService executor) {
+		this(monitor, cache, executor, DEFAULT_MAX_DEFERRED, DEFAULT_MAX_DEFER_MS);
+	}
+
+	/**
+	 * @param monitor     source of the connectivity state
+	 * @param cache       interceptor that stores the answers of GET requests
+	 * @param executor    executor used to send deferred requests and to let them expire
+	 * @param maxDeferred maximum number of waiting writes
+	 * @param maxDeferMs  maximum time a write waits for the device to go online
+	 */
+	public OfflineInterceptor(ConnectivityMonitor monitor, RevalidationInterceptor cache,
+	                          ScheduledExecutorService executor, int maxDeferred,
+	                          long maxDeferMs) {
+		mMonitor = monitor;
+		mCache = cache;
+		mExecutor = executor;
+		mMaxDeferred = maxDeferred;
+		mMaxDeferMs = maxDeferMs;
+		mMonitor.addListener(mListener);
+	}
+
+	/**
+	 * Replaces the source of the connectivity state, e.g. by a fake in tests. Deferred writes
+	 * are sent at once if the new monitor reports the device as online.
+	 *
+	 * @param monitor source of the connectivity state
+	 */
+	public void setConnectivityMonitor(ConnectivityMonitor monitor) {
+		mMonitor.removeListener(mListener);
+		mMonitor = monitor;
+		monitor.addListener(mListener);
+		if (monitor.isConnected()) {
+			flush();
+		}
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		TrelloRequest request = chain.request();
+		if (mMonitor.isConnected()) {
+			chain.proceed(request, callback);
+			return;
+		}
+
+		if (request.getMethod().equals("GET")) {
+			TrelloResponse cached = mCache.getCachedResponse(request);
+			if (cached != null) {
+				callback.onSuccess(cached);
+				return;
+			}
+		} else if (request.isIdempotent()) {
+			defer(chain, callback);
+			return;
+		}
+		callback.onError(new TrelloNotAccessibleException("Device is not connected to the " +
+				"internet."));
+	}
+
+	/**
+	 * @return number of writes waiting for the device to go online
+	 */
+	public synchronized int getDeferredCount() {
+		return mDeferred.size();
+	}
+
+	private void defer(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		final DeferredRequest deferred = new DeferredRequest(chain, callback);
+		boolean isFull;
+		synchronized (this) {
+			isFull = mDeferred.size() >= mMaxDeferred;
+			if (!isFull) {
+				mDeferred.add(deferred);
+			}
+		}
+		if (isFull) {
+			callback.onError(new TrelloNotAccessibleException("Device is not connected to the " +
+					"internet and too many changes are waiting."));
+			return;
+		}
+		ScheduledFuture<?> timer = mExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (remove(deferred)) {
+					deferred.mCallback.onError(new TrelloNotAccessibleException("Device has not " +
+							"been connected to the internet for too long."));
+				}
+			}
+		}, mMaxDeferMs, TimeUnit.MILLISECONDS);
+		synchronized (this) {
+			deferred.mTimer = timer;
+		}
+		chain.request().addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				remove(deferred);
+			}
+		});
+
+		// The device might have gone online in the meantime
+		if (mMonitor.isConnected()) {
+			flush();
+		}
+	}
+
+	/**
+	 * @return true if the request was still waiting, false if it has been sent or has failed
+	 */
+	private boolean remove(DeferredRequest deferred) {
+		ScheduledFuture<?> timer;
+		synchronized (this) {
+			if (!mDeferred.remove(deferred)) {
+				return false;
+			}
+			timer = deferred.mTimer;
+		}
+		if (timer != null) {
+			timer.cancel(false);
+		}
+		return true;
+	}
+
+	/**
+	 * Sends all deferred requests in their original order.
+	 */
+	private void flush() {
+		final ArrayList<DeferredRequest> deferred;
+		synchronized (this) {
+			if (mDeferred.isEmpty()) {
+				return;
+			}
+			deferred = new ArrayList<>(mDeferred);
+			mDeferred.clear();
+			for (DeferredRequest d : deferred) {
+				if (d.mTimer != null) {
+					d.mTimer.cancel(false);
+				}
+			}
+		}
+
+		Log.i(TAG, "Device is online, sending " + deferred.size() + " deferred requests");
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (DeferredRequest d : deferred) {
+					d.mChain.proceed(d.mChain.request(), d.mCallback);
+				}
+			}
+		});
+	}
+
+	private static class DeferredRequest {
+
+		private final Chain mChain;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		/**
+		 * Lets the request fail if the device stays offline, guarded by the interceptor
+		 */
+		private ScheduledFuture<?> mTimer;
+
+		public DeferredRequest(Chain chain, TrelloCallback<TrelloResponse> callback) {
+			mChain = chain;
+			mCallback = callback;
+		}
+	}
+}
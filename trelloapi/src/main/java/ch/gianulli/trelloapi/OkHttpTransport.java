@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * {@link Transport} based on OkHttp that multiplexes all requests over a single HTTP/2
+ * connection to the API host, with compressed headers. Parallel requests then share one TCP
+ * connection and one TLS handshake. Devices without ALPN support (before Android 5.0) fall back
+ * to HTTP/1.1 with a connection pool.
+ * <p/>
+ * Select it at runtime with {@link TrelloAPI#setTransport(Transport)}, which also raises the
+ * number of parallel requests to {@link #getMaxConcurrentRequests()}. Answers are delivered on
+ * OkHttp's dispatcher threads.
+ * <p/>
+ * The network time of every answer is recorded per negotiated protocol (see {@link
+ * #getNetworkTime(Protocol)}), so that HTTP/2 and HTTP/1.1 can be compared, e.g. by replaying
+ * the same session with HTTP/2 disabled.
+ */
+public class OkHttpTransport implements Transport {
+
+	/**
+	 * Streams per host; with HTTP/2 they all share one connection
+	 */
+	static final int MAX_REQUESTS_PER_HOST = 64;
+
+	/**
+	 * Parallel connections per host over HTTP/1.1, OkHttp's default
+	 */
+	private static final int MAX_HTTP1_REQUESTS_PER_HOST = 5;
+
+	private static final byte[] EMPTY_BODY = new byte[0];
+
+	private final OkHttpClient mClient;
+
+	private final String mBaseUrl;
+
+	private final int mMaxRequests;
+
+	private final ConcurrentHashMap<Protocol, Histogram> mNetworkTimes = new
+			ConcurrentHashMap<>();
+
+	/**
+	 * @param baseUrl e.g. "https://trello.com/1/"
+	 */
+	public OkHttpTransport(String baseUrl) {
+		this(baseUrl, null, true);
+	}
+
+	/**
+	 * @param baseUrl          e.g. "https://trello.com/1/"
+	 * @param sslSocketFactory factory for HTTPS connections, e.g. {@link
+	 *                         TrelloAPI#getSslSocketFactory()}; null for the default
+	 * @param http2            false to use only HTTP/1.1, e.g. to compare the protocols
+	 */
+	public OkHttpTransport(String baseUrl, SSLSocketFactory sslSocketFactory, boolean http2) {
+		this(baseUrl, sslSocketFactory, getProtocols(http2), getMaxRequests(http2));
+	}
+
+	/**
+	 * @param baseUrl          e.g. "https://trello.com/1/"
+	 * @param sslSocketFactory factory for HTTPS connections; null for the default
+	 * @param protocols        protocols to offer, e.g. only {@link Protocol#H2_PRIOR_KNOWLEDGE}
+	 *                         for a local HTTP/2 server without TLS
+	 * @param maxRequests      number of parallel requests to the API host
+	 */
+	OkHttpTransport(String baseUrl, SSLSocketFactory sslSocketFactory, List<Protocol> protocols,
+	                int maxRequests) {
+		mBaseUrl = baseUrl;
+		OkHttpClient.Builder builder = new OkHttpClient.Builder()
+				.protocols(protocols)
+				.connectTimeout(VolleyTransport.TIMEOUT_MS, TimeUnit.MILLISECONDS)
+				.readTimeout(VolleyTransport.TIMEOUT_MS, TimeUnit.MILLISECONDS)
+				.writeTimeout(VolleyTransport.TIMEOUT_MS, TimeUnit.MILLISECONDS)
+				// Retries are handled by RetryInterceptor
+				.retryOnConnectionFailure(false);
+		if (sslSocketFactory != null) {
+			builder.sslSocketFactory(sslSocketFactory, getDefaultTrustManager());
+		}
+		mClient = builder.build();
+
+		mMaxRequests = maxRequests;
+		mClient.dispatcher().setMaxRequestsPerHost(mMaxRequests);
+	}
+
+	@Override
+	public int getMaxConcurrentRequests() {
+		return mMaxRequests;
+	}
+
+	/**
+	 * @param protocol e.g. {@link Protocol#HTTP_2}
+	 * @return network times in ms of the answers received with the protocol
+	 */
+	public Histogram getNetworkTime(Protocol protocol) {
+		Histogram histogram = mNetworkTimes.get(protocol);
+		if (histogram == null) {
+			histogram = new Histogram();
+			Histogram existing = mNetworkTimes.putIfAbsent(protocol, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	@Override
+	public void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		if (request.isCanceled()) {
+			return;
+		}
+
+		Request.Builder builder = new Request.Builder().url(request.getUrl(mBaseUrl));
+		// OkHttp requires a body for POST and PUT; Trello takes all arguments from the URL
+		boolean needsBody = request.getMethod().equals("POST") || request.getMethod().equals
+				("PUT");
+		builder.method(request.getMethod(), needsBody ? RequestBody.create(null, EMPTY_BODY) :
+				null);
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+		}
+
+		// Includes the body download like the other transports, since the bandwidth estimate
+		// divides the body size by the network time
+		final long start = SystemClock.elapsedRealtime();
+		final Call call = mClient.newCall(builder.build());
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				call.cancel();
+			}
+		});
+		call.enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				if (request.isCanceled()) {
+					return;
+				}
+				if (e instanceof SocketTimeoutException) {
+					callback.onError(new TrelloNotAccessibleException("Network request timed " +
+							"out"));
+				} else {
+					callback.onError(new TrelloNotAccessibleException("Device is not connected " +
+							"to the internet."));
+				}
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException {
+				TrelloResponse trelloResponse;
+				try {
+					byte[] body = response.body().bytes();
+					long networkTimeMs = SystemClock.elapsedRealtime() - start;
+					trelloResponse = new TrelloResponse(response.code(), getHeaders(response
+							.headers()), body, networkTimeMs);
+					getNetworkTime(response.protocol()).record(networkTimeMs);
+				} catch (IOException e) {
+					onFailure(call, e);
+					return;
+				} finally {
+					response.close();
+				}
+				if (!request.isCanceled()) {
+					callback.onSuccess(trelloResponse);
+				}
+			}
+		});
+	}
+
+	private static List<Protocol> getProtocols(boolean http2) {
+		return http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections
+				.singletonList(Protocol.HTTP_1_1);
+	}
+
+	private static int getMaxRequests(boolean http2) {
+		// Without ALPN (before Android 5.0) every parallel request needs its own connection
+		boolean multiplexed = http2 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+		return multiplexed ? MAX_REQUESTS_PER_HOST : MAX_HTTP1_REQUESTS_PER_HOST;
+	}
+
+	/**
+	 * @return trust manager of the platform, which OkHttp needs together with a socket factory
+	 */
+	private static X509TrustManager getDefaultTrustManager() {
+		try {
+			TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory
+					.getDefaultAlgorithm());
+			factory.init((KeyStore) null);
+			for (TrustManager trustManager : factory.getTrustManagers()) {
+				if (trustManager instanceof X509TrustManager) {
+					return (X509TrustManager) trustManager;
+				}
+			}
+		} catch (GeneralSecurityException e) {
+			// handled below
+		}
+		throw new IllegalStateException("No X509TrustManager available");
+	}
+
+	/**
+	 * @return first value of every header, like Volley
+	 */
+	private static Map<String, String> getHeaders(Headers headers) {
+		HashMap<String, String> result = new HashMap<>();
+		for (int i = 0; i < headers.size(); ++i) {
+			if (!result.containsKey(headers.name(i))) {
+				result.put(headers.name(i), headers.value(i));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Limits the number of requests on the wire and decides which waiting request goes next:
+ * interactive requests first, then background writes, then prefetches (see {@link
+ * TrelloRequest.Priority}). A background write that has waited for {@value #WRITE_MAX_WAIT_MS}
+ * ms, or a prefetch that has waited for {@value #PREFETCH_MAX_WAIT_MS} ms, goes ahead of all
+ * interactive requests, so that lower lanes cannot starve.
+ * <p/>
+ * This interceptor should be the last one, so that the network queue stays short and the order
+ * is decided here. Slots freed by a cancellation or a new limit are filled on the executor,
+ * because {@link TrelloRequest#cancel()} is usually called on the main thread.
+ */
+public class PriorityInterceptor implements Interceptor {
+
+	private static final int DEFAULT_MAX_RUNNING = 4;
+
+	static final long WRITE_MAX_WAIT_MS = 2000;
+
+	static final long PREFETCH_MAX_WAIT_MS = 10000;
+
+	private final Executor mExecutor;
+
+	private int mMaxRunning;
+
+	private final EnumMap<TrelloRequest.Priority, ArrayDeque<PendingRequest>> mLanes = new
+			EnumMap<>(TrelloRequest.Priority.class);
+
+	private int mRunning = 0;
+
+	private final Runnable mDispatch = new Runnable() {
+		@Override
+		public void run() {
+			dispatch();
+		}
+	};
+
+	/**
+	 * @param executor executor that sends the waiting requests when a slot has been freed
+	 */
+	public PriorityInterceptor(Executor executor) {
+		this(executor, DEFAULT_MAX_RUNNING);
+	}
+
+	/**
+	 * @param executor   executor that sends the waiting requests when a slot has been freed
+	 * @param maxRunning maximum number of requests on the wire, should match the number of
+	 *                   network threads
+	 */
+	public PriorityInterceptor(Executor executor, int maxRunning) {
+		mExecutor = executor;
+		mMaxRunning = maxRunning;
+		for (TrelloRequest.Priority priority : TrelloRequest.Priority.values()) {
+			mLanes.put(priority, new ArrayDeque<PendingRequest>());
+		}
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		final PendingRequest pending = new PendingRequest(chain, callback);
+		synchronized (this) {
+			mLanes.get(pending.mPriority).addLast(pending);
+		}
+		chain.request().addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (PriorityInterceptor.this) {
+					if (mLanes.get(pending.mPriority).remove(pending)) {
+						return;
+					}
+				}
+				// Already sent; a cancelled request gets no answer, so free its slot now
+				if (release(pending)) {
+					mExecutor.execute(mDispatch);
+				}
+			}
+		});
+		dispatch();
+	}
+
+	/**
+	 * @param maxRunning maximum number of requests on the wire, e.g. {@link
+	 *                   Transport#getMaxConcurrentRequests()} after the transport has changed
+	 */
+	public void setMaxRunning(int maxRunning) {
+		synchronized (this) {
+			mMaxRunning = maxRunning;
+		}
+		mExecutor.execute(mDispatch);
+	}
+
+	/**
+	 * @return number of requests waiting in the given lane
+	 */
+	public synchronized int getQueueLength(TrelloRequest.Priority priority) {
+		return mLanes.get(priority).size();
+	}
+
+	/**
+	 * @return number of requests on the wire
+	 */
+	public synchronized int getRunningCount() {
+		return mRunning;
+	}
+
+	/**
+	 * Sends waiting requests while there are free slots.
+	 */
+	private void dispatch() {
+		while (true) {
+			PendingRequest next;
+			synchronized (this) {
+				if (mRunning >= mMaxRunning) {
+					return;
+				}
+				next = pollNext(SystemClock.elapsedRealtime());
+				if (next == null) {
+					return;
+				}
+				next.mStarted = true;
+				++mRunning;
+			}
+			send(next);
+		}
+	}
+
+	private PendingRequest pollNext(long now) {
+		ArrayDeque<PendingRequest> writes = mLanes.get(TrelloRequest.Priority.BACKGROUND_WRITE);
+		ArrayDeque<PendingRequest> prefetches = mLanes.get(TrelloRequest.Priority.PREFETCH);
+		if (!writes.isEmpty() && now - writes.peekFirst().mEnqueued >= WRITE_MAX_WAIT_MS) {
+			return writes.pollFirst();
+		}
+		if (!prefetches.isEmpty() && now - prefetches.peekFirst().mEnqueued >=
+				PREFETCH_MAX_WAIT_MS) {
+			return prefetches.pollFirst();
+		}
+		for (ArrayDeque<PendingRequest> lane : mLanes.values()) {
+			// EnumMap iterates in declaration order, i.e. by priority
+			if (!lane.isEmpty()) {
+				return lane.pollFirst();
+			}
+		}
+		return null;
+	}
+
+	private void send(final PendingRequest pending) {
+		pending.mChain.proceed(pending.mChain.request(), new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				finish(pending);
+				pending.mCallback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				finish(pending);
+				pending.mCallback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * Frees the slot of an answered request and sends the next one.
+	 */
+	private void finish(PendingRequest pending) {
+		if (release(pending)) {
+			dispatch();
+		}
+	}
+
+	/**
+	 * @return true if the slot of the sent request has been freed, false if it was already free
+	 */
+	private synchronized boolean release(PendingRequest pending) {
+		if (!pending.mStarted || pending.mFinished) {
+			return false;
+		}
+		pending.mFinished = true;
+		--mRunning;
+		return true;
+	}
+
+	private static class PendingRequest {
+
+		private final Chain mChain;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		private final TrelloRequest.Priority mPriority;
+
+		private final long mEnqueued = SystemClock.elapsedRealtime();
+
+		private boolean mStarted = false;
+
+		private boolean mFinished = false;
+
+		public PendingRequest(Chain chain, TrelloCallback<TrelloResponse> callback) {
+			mChain = chain;
+			mCallback = callback;
+			mPriority = chain.request().getPriority();
+		}
+	}
+}
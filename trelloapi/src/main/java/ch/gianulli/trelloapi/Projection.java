@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Selects which parts of a resource Trello sends, using the {@code fields}, {@code filter},
+ * {@code cards} and {@code card_fields} arguments. Every part that is null is left to Trello's
+ * default, which is usually "all".
+ * <p/>
+ * The model classes use minimal projections by default, e.g. {@link Board#DEFAULT_PROJECTION}.
+ * Callers that need more, e.g. the card descriptions, pass their own projection.
+ */
+public class Projection {
+
+	private final String mFields;
+
+	private final String mFilter;
+
+	private final String mCards;
+
+	private final String mCardFields;
+
+	/**
+	 * @param fields     comma-separated fields of the resource, e.g. "name,prefs"
+	 * @param filter     filter of a collection, e.g. "open"
+	 * @param cards      which cards to include, e.g. "open" or "none"
+	 * @param cardFields comma-separated fields of the included cards, e.g. "name,desc"
+	 */
+	public Projection(String fields, String filter, String cards, String cardFields) {
+		mFields = fields;
+		mFilter = filter;
+		mCards = cards;
+		mCardFields = cardFields;
+	}
+
+	public String getFields() {
+		return mFields;
+	}
+
+	public String getFilter() {
+		return mFilter;
+	}
+
+	public String getCards() {
+		return mCards;
+	}
+
+	public String getCardFields() {
+		return mCardFields;
+	}
+
+	/**
+	 * Adds the query arguments of this projection to a request.
+	 */
+	public void applyTo(TrelloRequest request) {
+		if (mFields != null) {
+			request.setQueryArg("fields", mFields);
+		}
+		if (mFilter != null) {
+			request.setQueryArg("filter", mFilter);
+		}
+		if (mCards != null) {
+			request.setQueryArg("cards", mCards);
+		}
+		if (mCardFields != null) {
+			request.setQueryArg("card_fields", mCardFields);
+		}
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps requests within Trello's rate limits (300 requests per 10 seconds per API key, 100 per
+ * 10 seconds per token) using two token buckets. Requests that would exceed a limit are queued
+ * and sent as soon as the buckets allow it, in the order of their priority with the same
+ * protection against starvation as {@link PriorityInterceptor}, so that interactive requests do
+ * not wait behind queued background traffic.
+ * <p/>
+ * If the server answers 429 Too Many Requests anyway, sending is paused for the time given in
+ * the Retry-After header and the request is queued again instead of failing.
+ * <p/>
+ * Cancelled requests leave the queue without using up a permit.
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	private static final long WINDOW_MS = 10000;
+
+	private static final int KEY_LIMIT = 300;
+
+	private static final int TOKEN_LIMIT = 100;
+
+	/**
+	 * Pause after a 429 answer without Retry-After header
+	 */
+	private static final long DEFAULT_RETRY_AFTER_MS = WINDOW_MS;
+
+	/**
+	 * Number of 429 answers after which a request fails
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final Clock mClock;
+
+	private final TokenBucket mKeyBucket;
+
+	private final TokenBucket mTokenBucket;
+
+	private final EnumMap<TrelloRequest.Priority, ArrayDeque<PendingRequest>> mLanes = new
+			EnumMap<>(TrelloRequest.Priority.class);
+
+	private long mBlockedUntil = 0;
+
+	private boolean mDrainScheduled = false;
+
+	/**
+	 * @param executor executor used to send queued requests later
+	 */
+	public RateLimitInterceptor(ScheduledExecutorService executor) {
+		this(executor, new Clock() {
+			@Override
+			public long elapsedRealtime() {
+				return SystemClock.elapsedRealtime();
+			}
+		});
+	}
+
+	/**
+	 * @param executor executor used to send queued requests later
+	 * @param clock    time source of the buckets
+	 */
+	RateLimitInterceptor(ScheduledExecutorService executor, Clock clock) {
+		mExecutor = executor;
+		mClock = clock;
+		long now = clock.elapsedRealtime();
+		mKeyBucket = new TokenBucket(KEY_LIMIT, WINDOW_MS, now);
+		mTokenBucket = new TokenBucket(TOKEN_LIMIT, WINDOW_MS, now);
+		for (TrelloRequest.Priority priority : TrelloRequest.Priority.values()) {
+			mLanes.put(priority, new ArrayDeque<PendingRequest>());
+		}
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		final PendingRequest pending = new PendingRequest(chain, callback, mClock
+				.elapsedRealtime());
+		synchronized (this) {
+			mLanes.get(pending.mPriority).addLast(pending);
+		}
+		chain.request().addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (RateLimitInterceptor.this) {
+					mLanes.get(pending.mPriority).remove(pending);
+				}
+			}
+		});
+		drain();
+	}
+
+	/**
+	 * @return number of requests waiting for the rate limit
+	 */
+	public synchronized int getQueueLength() {
+		int length = 0;
+		for (ArrayDeque<PendingRequest> lane : mLanes.values()) {
+			length += lane.size();
+		}
+		return length;
+	}
+
+	/**
+	 * Sends queued requests as long as the buckets allow it and schedules the next attempt
+	 * otherwise.
+	 */
+	private void drain() {
+		while (true) {
+			PendingRequest next;
+			synchronized (this) {
+				if (mDrainScheduled) {
+					return;
+				}
+
+				long now = mClock.elapsedRealtime();
+				ArrayDeque<PendingRequest> lane = getNextLane(now);
+				if (lane == null) {
+					return;
+				}
+				next = lane.peekFirst();
+				boolean needsToken = next.mChain.request().isTokenNecessary();
+				long wait = Math.max(mBlockedUntil - now, mKeyBucket.getWaitTime(now));
+				if (needsToken) {
+					wait = Math.max(wait, mTokenBucket.getWaitTime(now));
+				}
+
+				if (wait > 0) {
+					mDrainScheduled = true;
+					mExecutor.schedule(new Runnable() {
+						@Override
+						public void run() {
+							synchronized (RateLimitInterceptor.this) {
+								mDrainScheduled = false;
+							}
+							drain();
+						}
+					}, wait, TimeUnit.MILLISECONDS);
+					return;
+				}
+
+				mKeyBucket.acquire(now);
+				if (needsToken) {
+					mTokenBucket.acquire(now);
+				}
+				lane.pollFirst();
+			}
+			send(next);
+		}
+	}
+
+	/**
+	 * @return lane of the request that goes next or null if no request is waiting
+	 */
+	private ArrayDeque<PendingRequest> getNextLane(long now) {
+		ArrayDeque<PendingRequest> writes = mLanes.get(TrelloRequest.Priority.BACKGROUND_WRITE);
+		ArrayDeque<PendingRequest> prefetches = mLanes.get(TrelloRequest.Priority.PREFETCH);
+		if (!writes.isEmpty() && now - writes.peekFirst().mEnqueued >= PriorityInterceptor
+				.WRITE_MAX_WAIT_MS) {
+			return writes;
+		}
+		if (!prefetches.isEmpty() && now - prefetches.peekFirst().mEnqueued >=
+				PriorityInterceptor.PREFETCH_MAX_WAIT_MS) {
+			return prefetches;
+		}
+		for (ArrayDeque<PendingRequest> lane : mLanes.values()) {
+			// EnumMap iterates in declaration order, i.e. by priority
+			if (!lane.isEmpty()) {
+				return lane;
+			}
+		}
+		return null;
+	}
+
+	private void send(final PendingRequest pending) {
+		pending.mChain.proceed(pending.mChain.request(), new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				if (response.getStatusCode() == 429 && ++pending.mAttempts < MAX_ATTEMPTS &&
+						!pending.mChain.request().isCanceled()) {
+					long retryAfter = getRetryAfterMs(response);
+					Log.i(TAG, "Rate limit exceeded, pausing for " + retryAfter + " ms");
+					synchronized (RateLimitInterceptor.this) {
+						mBlockedUntil = Math.max(mBlockedUntil, mClock.elapsedRealtime() +
+								retryAfter);
+						mLanes.get(pending.mPriority).addFirst(pending);
+					}
+					drain();
+					return;
+				}
+
+				updateRemaining(response);
+				pending.mCallback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				pending.mCallback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * Lowers the buckets to the remaining requests reported by the server, which also counts
+	 * requests made by other clients.
+	 */
+	private synchronized void updateRemaining(TrelloResponse response) {
+		long now = mClock.elapsedRealtime();
+		String keyRemaining = response.getHeader("X-Rate-Limit-Api-Key-Remaining");
+		String tokenRemaining = response.getHeader("X-Rate-Limit-Api-Token-Remaining");
+		try {
+			if (keyRemaining != null) {
+				mKeyBucket.limitTo(Integer.parseInt(keyRemaining.trim()), now);
+			}
+			if (tokenRemaining != null) {
+				mTokenBucket.limitTo(Integer.parseInt(tokenRemaining.trim()), now);
+			}
+		} catch (NumberFormatException e) {
+			// ignore malformed header
+		}
+	}
+
+	/**
+	 * @return pause requested by the Retry-After header (seconds or HTTP date)
+	 */
+	private static long getRetryAfterMs(TrelloResponse response) {
+		String retryAfter = response.getHeader("Retry-After");
+		if (retryAfter != null) {
+			try {
+				return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+			} catch (NumberFormatException e) {
+				long date = parseHttpDate(retryAfter.trim());
+				if (date > 0) {
+					return Math.max(0, date - System.currentTimeMillis());
+				}
+			}
+		}
+		return DEFAULT_RETRY_AFTER_MS;
+	}
+
+	/**
+	 * @param date RFC 1123 date, e.g. "Wed, 21 Oct 2015 07:28:00 GMT"
+	 * @return milliseconds since the epoch, or -1 if the date cannot be parsed
+	 */
+	static long parseHttpDate(String date) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale
+				.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		try {
+			return format.parse(date).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Source of the time used for the buckets, so that tests can control it
+	 */
+	interface Clock {
+
+		/**
+		 * @return milliseconds since some fixed point in time, like {@link
+		 * SystemClock#elapsedRealtime()}
+		 */
+		long elapsedRealtime();
+	}
+
+	private static class PendingRequest {
+
+		private final Chain mChain;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		private final TrelloRequest.Priority mPriority;
+
+		private final long mEnqueued;
+
+		private int mAttempts = 0;
+
+		public PendingRequest(Chain chain, TrelloCallback<TrelloResponse> callback, long now) {
+			mChain = chain;
+			mEnqueued = now;
+			mCallback = callback;
+			mPriority = chain.request().getPriority();
+		}
+	}
+
+	/**
+	 * Bucket that holds up to {@code capacity} permits and refills completely within {@code
+	 * periodMs}. Not thread-safe.
+	 */
+	private static class TokenBucket {
+
+		private final int mCapacity;
+
+		private final double mPermitsPerMs;
+
+		private double mPermits;
+
+		private long mLastRefill;
+
+		public TokenBucket(int capacity, long periodMs, long now) {
+			mCapacity = capacity;
+			mPermitsPerMs = (double) capacity / periodMs;
+			mPermits = capacity;
+			mLastRefill = now;
+		}
+
+		/**
+		 * @return milliseconds until a permit is available
+		 */
+		public long getWaitTime(long now) {
+			refill(now);
+			if (mPermits >= 1) {
+				return 0;
+			}
+			return (long) Math.ceil((1 - mPermits) / mPermitsPerMs);
+		}
+
+		public void acquire(long now) {
+			refill(now);
+			mPermits -= 1;
+		}
+
+		public void limitTo(int permits, long now) {
+			refill(now);
+			mPermits = Math.min(mPermits, permits);
+		}
+
+		private void refill(long now) {
+			mPermits = Math.min(mCapacity, mPermits + (now - mLastRefill) * mPermitsPerMs);
+			mLastRefill = now;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Writes every request together with its answer to a file, one JSON object per line:
+ * <pre>
+ * {"method":"GET","path":"boards/4eea4ffc91e31d1746000046/lists","args":{...},"status":200,
+ *  "contentType":"...","charset":"utf-8","body":"...","durationMs":123}
+ * </pre>
+ * The path is recorded as sent, since {@link ReplayTransport} matches on it. The key and the
+ * token are removed from the arguments. Requests that fail without an answer are not recorded.
+ * The file is written on a background thread, so recording does not delay the answers. It can
+ * be served by {@link ReplayTransport}, see {@link TrelloAPI#startRecording(File)}.
+ */
+public class RecordingInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	private final Writer mWriter;
+
+	private final ExecutorService mWriteExecutor = Executors.newSingleThreadExecutor(new
+			ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "TrelloAPI-recording");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private boolean mClosed = false;
+
+	/**
+	 * @param file file the records are appended to
+	 * @throws IOException if the file cannot be opened
+	 */
+	public RecordingInterceptor(File file) throws IOException {
+		mWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true),
+				"UTF-8"));
+	}
+
+	@Override
+	public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+		final TrelloRequest request = chain.request();
+		final long start = SystemClock.elapsedRealtime();
+		chain.proceed(request, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				record(request, response, SystemClock.elapsedRealtime() - start);
+				callback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				callback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * Closes the file after all pending records have been written. Later answers are not
+	 * recorded.
+	 */
+	public synchronized void close() {
+		if (mClosed) {
+			return;
+		}
+		mClosed = true;
+		mWriteExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					mWriter.close();
+				} catch (IOException e) {
+					Log.w(TAG, "Could not close recording: " + e.getMessage());
+				}
+			}
+		});
+		mWriteExecutor.shutdown();
+	}
+
+	private synchronized void record(final TrelloRequest request, final TrelloResponse response,
+	                                 final long durationMs) {
+		if (mClosed) {
+			return;
+		}
+		mWriteExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				write(request, response, durationMs);
+			}
+		});
+	}
+
+	private void write(TrelloRequest request, TrelloResponse response, long durationMs) {
+		String line;
+		try {
+			JSONObject args = new JSONObject();
+			for (Map.Entry<String, String> arg : request.getQueryArgs().entrySet()) {
+				if (!arg.getKey().equals("key") && !arg.getKey().equals("token")) {
+					args.put(arg.getKey(), arg.getValue());
+				}
+			}
+
+			JSONObject record = new JSONObject();
+			record.put("method", request.getMethod());
+			record.put("path", request.getPath());
+			record.put("args", args);
+			record.put("status", response.getStatusCode());
+			record.put("contentType", response.getHeader("Content-Type"));
+			record.put("charset", response.getCharset());
+			record.put("body", response.getBodyAsString());
+			record.put("durationMs", durationMs);
+			line = record.toString();
+		} catch (JSONException e) {
+			// never happens
+			return;
+		}
+
+		try {
+			mWriter.write(line);
+			mWriter.write('\n');
+			mWriter.flush();
+		} catch (IOException e) {
+			Log.w(TAG, "Could not record " + request + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Transport} that answers requests with the records written by {@link
+ * RecordingInterceptor}, so that a recorded session can be repeated without network access.
+ * <p/>
+ * Requests are matched by method, path and query arguments (without key and token). Several
+ * records for the same request are served in the order they were recorded; once they are used
+ * up, the last one is repeated. Unknown requests are answered with 404. Each answer is delivered
+ * after the recorded duration times the latency scale.
+ */
+public class ReplayTransport implements Transport {
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final HashMap<String, ArrayList<Record>> mRecords = new HashMap<>();
+
+	private final HashMap<String, Integer> mPositions = new HashMap<>();
+
+	private double mLatencyScale = 1.0;
+
+	/**
+	 * @param executor executor that delivers the answers, e.g. {@link TrelloAPI#getExecutor()}
+	 * @param file     file written by {@link RecordingInterceptor}
+	 * @throws IOException if the file cannot be read or contains malformed records
+	 */
+	public ReplayTransport(ScheduledExecutorService executor, File file) throws IOException {
+		mExecutor = executor;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream
+				(file), "UTF-8"));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				++lineNumber;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				try {
+					readRecord(new JSONObject(line));
+				} catch (JSONException e) {
+					throw new IOException("Malformed record in line " + lineNumber + ": " + e
+							.getMessage());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @param scale factor applied to the recorded durations, e.g. 0 to answer at once or 2 to
+	 *              simulate a network that is twice as slow
+	 */
+	public synchronized void setLatencyScale(double scale) {
+		mLatencyScale = scale;
+	}
+
+	/**
+	 * Starts serving every request from its first record again.
+	 */
+	public synchronized void rewind() {
+		mPositions.clear();
+	}
+
+	/**
+	 * @return unlimited, answers do not compete for a network
+	 */
+	@Override
+	public int getMaxConcurrentRequests() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		String key = getKey(request.getMethod(), request.getPath(), request.getQueryArgs());
+		Record record = null;
+		long delay = 0;
+		synchronized (this) {
+			ArrayList<Record> records = mRecords.get(key);
+			if (records != null) {
+				Integer position = mPositions.get(key);
+				int index = (position == null) ? 0 : position;
+				record = records.get(Math.min(index, records.size() - 1));
+				mPositions.put(key, index + 1);
+				delay = Math.round(record.mDurationMs * mLatencyScale);
+			}
+		}
+
+		final TrelloResponse response;
+		if (record != null) {
+			response = new TrelloResponse(record.mStatusCode, record.mHeaders, record.mData,
+					delay);
+		} else {
+			Map<String, String> headers = new HashMap<>();
+			headers.put("Content-Type", "text/plain; charset=utf-8");
+			response = new TrelloResponse(404, headers, ("No record for " + key).getBytes(), 0);
+		}
+
+		final ScheduledFuture<?> future = mExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (!request.isCanceled()) {
+					callback.onSuccess(response);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		});
+	}
+
+	private void readRecord(JSONObject json) throws JSONException, IOException {
+		TreeMap<String, String> args = new TreeMap<>();
+		JSONObject jsonArgs = json.optJSONObject("args");
+		if (jsonArgs != null) {
+			Iterator<?> it = jsonArgs.keys();
+			while (it.hasNext()) {
+				String name = (String) it.next();
+				args.put(name, jsonArgs.getString(name));
+			}
+		}
+
+		HashMap<String, String> headers = new HashMap<>();
+		if (json.has("contentType")) {
+			headers.put("Content-Type", json.getString("contentType"));
+		}
+		String charset = json.has("charset") ? json.getString("charset") : "UTF-8";
+
+		Record record = new Record(json.getInt("status"), headers, json.getString("body")
+				.getBytes(charset), json.getLong("durationMs"));
+		String key = getKey(json.getString("method"), json.getString("path"), args);
+		ArrayList<Record> records = mRecords.get(key);
+		if (records == null) {
+			records = new ArrayList<>();
+			mRecords.put(key, records);
+		}
+		records.add(record);
+	}
+
+	/**
+	 * @return method, path and sorted query arguments without key and token
+	 */
+	private static String getKey(String method, String path, Map<String, String> queryArgs) {
+		StringBuilder key = new StringBuilder(method).append(' ').append(path);
+		for (Map.Entry<String, String> arg : new TreeMap<>(queryArgs).entrySet()) {
+			if (!arg.getKey().equals("key") && !arg.getKey().equals("token")) {
+				key.append(' ').append(arg.getKey()).append('=').append(arg.getValue());
+			}
+		}
+		return key.toString();
+	}
+
+	private static class Record {
+
+		private final int mStatusCode;
+
+		private final Map<String, String> mHeaders;
+
+		private final byte[] mData;
+
+		private final long mDurationMs;
+
+		public Record(int statusCode, Map<String, String> headers, byte[] data, long durationMs) {
+			mStatusCode = statusCode;
+			mHeaders = headers;
+			mData = data;
+			mDurationMs = durationMs;
+		}
+	}
+}
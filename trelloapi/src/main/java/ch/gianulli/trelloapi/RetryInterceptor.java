@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries idempotent requests (see {@link TrelloRequest#isIdempotent()}) that failed because of
+ * a network error, a timeout or a 5xx answer. The delay before each retry grows exponentially up
+ * to a cap and is randomized ("full jitter"), so that many clients do not retry in lockstep.
+ * Cancelled requests and requests rejected by an open circuit (see {@link
+ * CircuitBreakerInterceptor}) are not retried.
+ * <p/>
+ * A retry is only made if it can time out before the total time limit has passed, so that a
+ * caller waiting for at most this long (e.g. a synchronous request) gets the real error instead
+ * of cancelling a retry that might still succeed.
+ */
+public class RetryInterceptor implements Interceptor {
+
+	private static final String TAG = "TrelloAPI";
+
+	private static final int DEFAULT_MAX_ATTEMPTS = 4;
+
+	private static final long DEFAULT_BASE_DELAY_MS = 500;
+
+	private static final long DEFAULT_MAX_DELAY_MS = 8000;
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final int mMaxAttempts;
+
+	private final long mBaseDelayMs;
+
+	private final long mMaxDelayMs;
+
+	private final long mMaxTotalMs;
+
+	private final Random mRandom = new Random();
+
+	/**
+	 * @param executor executor used to schedule the retries
+	 */
+	public RetryInterceptor(ScheduledExecutorService executor) {
+		this(executor, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, Long
+				.MAX_VALUE);
+	}
+
+	/**
+	 * @param executor   executor used to schedule the retries
+	 * @param maxTotalMs time from the first attempt after which no attempt may still be running
+	 */
+	public RetryInterceptor(ScheduledExecutorService executor, long maxTotalMs) {
+		this(executor, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS,
+				maxTotalMs);
+	}
+
+	/**
+	 * @param executor    executor used to schedule the retries
+	 * @param maxAttempts maximum number of attempts including the first one
+	 * @param baseDelayMs upper bound of the delay before the first retry
+	 * @param maxDelayMs  upper bound of the delay before any retry
+	 */
+	public RetryInterceptor(ScheduledExecutorService executor, int maxAttempts, long
+			baseDelayMs, long maxDelayMs) {
+		this(executor, maxAttempts, baseDelayMs, maxDelayMs, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param executor    executor used to schedule the retries
+	 * @param maxAttempts maximum number of attempts including the first one
+	 * @param baseDelayMs upper bound of the delay before the first retry
+	 * @param maxDelayMs  upper bound of the delay before any retry
+	 * @param maxTotalMs  time from the first attempt after which no attempt may still be running
+	 */
+	public RetryInterceptor(ScheduledExecutorService executor, int maxAttempts, long
+			baseDelayMs, long maxDelayMs, long maxTotalMs) {
+		mExecutor = executor;
+		mMaxAttempts = maxAttempts;
+		mBaseDelayMs = baseDelayMs;
+		mMaxDelayMs = maxDelayMs;
+		mMaxTotalMs = maxTotalMs;
+	}
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		if (!chain.request().isIdempotent()) {
+			chain.proceed(chain.request(), callback);
+			return;
+		}
+		attempt(chain, callback, 1, SystemClock.elapsedRealtime());
+	}
+
+	private void attempt(final Chain chain, final TrelloCallback<TrelloResponse> callback, final
+	int attempt, final long start) {
+		chain.proceed(chain.request(), new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				long delay = getDelayMs(attempt);
+				if (response.getStatusCode() >= 500 && mayRetry(attempt, start, delay)) {
+					retry(chain, callback, attempt, start, delay, "error " + response
+							.getStatusCode());
+				} else {
+					callback.onSuccess(response);
+				}
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				long delay = getDelayMs(attempt);
+				if (e instanceof TrelloNotAccessibleException && !(e instanceof
+						CircuitOpenException) && mayRetry(attempt, start, delay)) {
+					retry(chain, callback, attempt, start, delay, e.getMessage());
+				} else {
+					callback.onError(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return true if another attempt is allowed and would time out within the total limit
+	 */
+	private boolean mayRetry(int attempt, long start, long delay) {
+		long end = SystemClock.elapsedRealtime() - start + delay + VolleyTransport.TIMEOUT_MS;
+		return attempt < mMaxAttempts && end <= mMaxTotalMs;
+	}
+
+	private void retry(final Chain chain, final TrelloCallback<TrelloResponse> callback, final
+	int attempt, final long start, long delay, String reason) {
+		if (chain.request().isCanceled()) {
+			return;
+		}
+		Log.i(TAG, chain.request() + " failed (" + reason + "), retrying in " + delay + " ms");
+		final ScheduledFuture<?> future = mExecutor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (!chain.request().isCanceled()) {
+					attempt(chain, callback, attempt + 1, start);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		chain.request().addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		});
+	}
+
+	/**
+	 * @param attempt number of attempts made so far
+	 * @return random delay between 0 and min(max delay, base delay * 2^(attempt - 1))
+	 */
+	private long getDelayMs(int attempt) {
+		long bound = Math.min(mMaxDelayMs, mBaseDelayMs << Math.min(attempt - 1, 30));
+		return (long) (mRandom.nextDouble() * bound);
+	}
+}
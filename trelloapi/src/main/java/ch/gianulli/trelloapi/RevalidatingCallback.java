@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Receives the result of a request sent with {@link TrelloAPI#enqueueRevalidating
+ * (TrelloRequest, TrelloAPI.ResponseParser, RevalidatingCallback)}: first the last good result,
+ * if there is one, and then the current one. All methods are called on the main thread.
+ *
+ * @param <T> type of the result
+ */
+public interface RevalidatingCallback<T> {
+
+	/**
+	 * Called at once if an earlier answer is stored, before the request is sent.
+	 *
+	 * @param result result parsed from the last good answer, possibly outdated
+	 */
+	void onStale(T result);
+
+	/**
+	 * @param result  parsed server answer
+	 * @param changed false if the answer is the same as the one passed to {@link #onStale
+	 *                (Object)}, i.e. the result need not be shown again
+	 */
+	void onFresh(T result, boolean changed);
+
+	/**
+	 * @param e {@link TrelloNotAuthorizedException} if the token is not valid, {@link
+	 *          TrelloNotAccessibleException} otherwise
+	 */
+	void onError(TrelloException e);
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Revalidates GET requests with the validators (ETag, Last-Modified) of the last answer for the
+ * same URL. If the server answers 304 Not Modified, the last answer is passed on instead, which
+ * also lets {@link TrelloAPI} reuse the model it has already parsed from it.
+ * <p/>
+ * Answers are kept in memory in least-recently-used order up to a total size. They are stored
+ * without the key and token, so they can be looked up before authentication, see {@link
+ * TrelloAPI#enqueueRevalidating(TrelloRequest, TrelloAPI.ResponseParser, RevalidatingCallback)}.
+ */
+public class RevalidationInterceptor implements Interceptor {
+
+	private static final int DEFAULT_MAX_SIZE_BYTES = 4 * 1024 * 1024;
+
+	private final int mMaxSizeBytes;
+
+	private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private int mSizeBytes = 0;
+
+	public RevalidationInterceptor() {
+		this(DEFAULT_MAX_SIZE_BYTES);
+	}
+
+	/**
+	 * @param maxSizeBytes maximum total size of the stored answers
+	 */
+	public RevalidationInterceptor(int maxSizeBytes) {
+		mMaxSizeBytes = maxSizeBytes;
+	}
+
+	@Override
+	public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+		TrelloRequest request = chain.request();
+		if (!request.getMethod().equals("GET")) {
+			chain.proceed(request, callback);
+			return;
+		}
+
+		final String key = getKey(request);
+		final Entry entry = get(key);
+		if (entry != null) {
+			if (entry.mEtag != null) {
+				request.setHeader("If-None-Match", entry.mEtag);
+			}
+			if (entry.mLastModified != null) {
+				request.setHeader("If-Modified-Since", entry.mLastModified);
+			}
+		}
+
+		chain.proceed(request, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				if (response.getStatusCode() == 304 && entry != null) {
+					callback.onSuccess(entry.mResponse);
+					return;
+				}
+
+				if (response.isSuccessful()) {
+					// Also kept without validators to serve as last good answer
+					put(key, new Entry(response.getHeader("ETag"), response.getHeader
+							("Last-Modified"), response));
+				}
+				callback.onSuccess(response);
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				callback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * @return last answer for the request or null if none is stored
+	 */
+	public TrelloResponse getCachedResponse(TrelloRequest request) {
+		Entry entry = get(getKey(request));
+		return (entry == null) ? null : entry.mResponse;
+	}
+
+	/**
+	 * Removes all stored answers, e.g. after the user has changed.
+	 */
+	public synchronized void clear() {
+		mEntries.clear();
+		mSizeBytes = 0;
+	}
+
+	private static String getKey(TrelloRequest request) {
+		TrelloRequest unauthorized = new TrelloRequest(request.getMethod(), request.getPath(),
+				request.getQueryArgs(), false);
+		unauthorized.getQueryArgs().remove("key");
+		unauthorized.getQueryArgs().remove("token");
+		return request.getMethod() + " " + unauthorized.getUrl("");
+	}
+
+	private synchronized Entry get(String key) {
+		return mEntries.get(key);
+	}
+
+	private synchronized void put(String key, Entry entry) {
+		remove(key);
+		int size = entry.mResponse.getData().length;
+		if (size > mMaxSizeBytes) {
+			return;
+		}
+		mEntries.put(key, entry);
+		mSizeBytes += size;
+
+		// Evict least recently used answers
+		Iterator<Entry> it = mEntries.values().iterator();
+		while (mSizeBytes > mMaxSizeBytes && it.hasNext()) {
+			mSizeBytes -= it.next().mResponse.getData().length;
+			it.remove();
+		}
+	}
+
+	private synchronized void remove(String key) {
+		Entry old = mEntries.remove(key);
+		if (old != null) {
+			mSizeBytes -= old.mResponse.getData().length;
+		}
+	}
+
+	private static class Entry {
+
+		private final String mEtag;
+
+		private final String mLastModified;
+
+		private final TrelloResponse mResponse;
+
+		public Entry(String etag, String lastModified, TrelloResponse response) {
+			mEtag = etag;
+			mLastModified = lastModified;
+			mResponse = response;
+		}
+	}
+}
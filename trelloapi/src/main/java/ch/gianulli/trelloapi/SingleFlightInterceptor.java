@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Merges identical GET requests that are in flight at the same time. Only one request is passed
+ * on; its answer is delivered to every request that joined in the meantime. Requests are
+ * identical if method, path and query arguments match.
+ * <p/>
+ * A cancelled request only stops waiting. The shared request is cancelled once every request
+ * that joined it has been cancelled.
+ */
+public class SingleFlightInterceptor implements Interceptor {
+
+	private final HashMap<String, Flight> mInFlight = new HashMap<>();
+
+	@Override
+	public void intercept(Chain chain, TrelloCallback<TrelloResponse> callback) {
+		TrelloRequest request = chain.request();
+		if (!request.getMethod().equals("GET")) {
+			chain.proceed(request, callback);
+			return;
+		}
+
+		final String key = getKey(request);
+		final Flight flight;
+		boolean isNew = false;
+		synchronized (mInFlight) {
+			Flight existing = mInFlight.get(key);
+			if (existing != null) {
+				flight = existing;
+			} else {
+				flight = new Flight(request.copy());
+				mInFlight.put(key, flight);
+				isNew = true;
+			}
+			flight.mWaiters.add(new Waiter(request, callback));
+		}
+
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				onWaiterCanceled(key, flight);
+			}
+		});
+
+		if (!isNew) {
+			return;
+		}
+
+		chain.proceed(flight.mShared, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(TrelloResponse response) {
+				for (Waiter waiter : finish(key, flight)) {
+					if (!waiter.mRequest.isCanceled()) {
+						waiter.mCallback.onSuccess(response);
+					}
+				}
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				for (Waiter waiter : finish(key, flight)) {
+					if (!waiter.mRequest.isCanceled()) {
+						waiter.mCallback.onError(e);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return number of distinct requests currently in flight
+	 */
+	public int getInFlightCount() {
+		synchronized (mInFlight) {
+			return mInFlight.size();
+		}
+	}
+
+	private void onWaiterCanceled(String key, Flight flight) {
+		synchronized (mInFlight) {
+			for (Waiter waiter : flight.mWaiters) {
+				if (!waiter.mRequest.isCanceled()) {
+					return;
+				}
+			}
+			// Nobody is interested anymore; new requests must not join the cancelled one
+			if (mInFlight.get(key) == flight) {
+				mInFlight.remove(key);
+			}
+		}
+		flight.mShared.cancel();
+	}
+
+	private List<Waiter> finish(String key, Flight flight) {
+		synchronized (mInFlight) {
+			if (mInFlight.get(key) == flight) {
+				mInFlight.remove(key);
+			}
+			return new ArrayList<>(flight.mWaiters);
+		}
+	}
+
+	private static String getKey(TrelloRequest request) {
+		return request.getMethod() + " " + request.getUrl("");
+	}
+
+	private static class Flight {
+
+		private final TrelloRequest mShared;
+
+		private final List<Waiter> mWaiters = new ArrayList<>();
+
+		public Flight(TrelloRequest shared) {
+			mShared = shared;
+		}
+	}
+
+	private static class Waiter {
+
+		private final TrelloRequest mRequest;
+
+		private final TrelloCallback<TrelloResponse> mCallback;
+
+		public Waiter(TrelloRequest request, TrelloCallback<TrelloResponse> callback) {
+			mRequest = request;
+			mCallback = callback;
+		}
+	}
+}
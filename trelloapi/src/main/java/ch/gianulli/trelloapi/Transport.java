@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+/**
+ * Last step of the request pipeline of {@link TrelloAPI}: sends a request and reports its
+ * answer. Implementations must follow these rules:
+ * <ul>
+ * <li>Every HTTP answer, including error status codes, is passed to {@link
+ * TrelloCallback#onSuccess(Object)}. Only failures without an answer are reported as {@link
+ * TrelloNotAccessibleException}.</li>
+ * <li>The callback is called on a background thread, never on the calling thread.</li>
+ * <li>Cancelled requests (see {@link TrelloRequest#isCanceled()}) get no callback and should be
+ * aborted as soon as possible.</li>
+ * </ul>
+ *
+ * @see TrelloAPI#setTransport(Transport)
+ */
+public interface Transport {
+
+	/**
+	 * Sends the request without blocking the calling thread.
+	 *
+	 * @param request  request including all query arguments and headers
+	 * @param callback receives the answer on a background thread
+	 */
+	void execute(TrelloRequest request, TrelloCallback<TrelloResponse> callback);
+
+	/**
+	 * @return number of requests the transport can usefully have on the wire at the same time,
+	 * used as limit by {@link PriorityInterceptor}
+	 */
+	int getMaxConcurrentRequests();
+}
@@ -28,39 +28,50 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.net.SSLCertificateSocketFactory;
+import android.net.SSLSessionCache;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.v4.app.FragmentManager;
 import android.util.Log;
 
-import com.android.volley.NetworkError;
-import com.android.volley.NoConnectionError;
-import com.android.volley.ParseError;
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.VolleyError;
-import com.android.volley.toolbox.JsonArrayRequest;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.RequestFuture;
-import com.android.volley.toolbox.StringRequest;
-import com.android.volley.toolbox.Volley;
-
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
-import java.net.URLEncoder;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+
+import javax.net.ssl.SSLSocketFactory;
 
 import ch.gianulli.trelloapi.ui.AuthenticationDialogFragment;
 
 /**
- * Base class that maps the Trello API. It uses <a href="https://developer.android
- * .com/training/volley/index.html">Volley</a> for network requests.
+ * Base class that maps the Trello API. By default it uses <a href="https://developer.android
+ * .com/training/volley/index.html">Volley</a> for network requests (see {@link Transport}).
+ * <p/>
+ * Every request runs through a chain of {@link Interceptor}s before it is sent. The chain and
+ * the parsing of answers run on a small pool of background threads.
  */
 public class TrelloAPI {
 
@@ -81,7 +92,70 @@ public class TrelloAPI {
 	 */
 	private static final String META_DATA_APP_SECRET = "ch.gianulli.trelloapi.APP_SECRET";
 
-	private static final String BASE_URL = "https://trello.com/1/";
+	public static final String BASE_URL = "https://trello.com/1/";
+
+	/**
+	 * Host of {@link #BASE_URL}
+	 */
+	private static final String API_HOST = "trello.com";
+
+	/**
+	 * Maximum number of URLs Trello accepts in one batch request
+	 */
+	public static final int MAX_BATCH_SIZE = 10;
+
+	/**
+	 * Maximum time a synchronous request waits for its answer
+	 */
+	private static final long SYNC_TIMEOUT_SECONDS = 30;
+
+	/**
+	 * Number of threads that run the interceptor chain and its timers
+	 */
+	private static final int PIPELINE_THREADS = 2;
+
+	/**
+	 * Number of threads that parse answers, separate so that a large answer does not delay the
+	 * timers of the pipeline
+	 */
+	private static final int PARSE_THREADS = 2;
+
+	/**
+	 * Number of threads that send requests over the network
+	 */
+	static final int NETWORK_THREADS = 4;
+
+	/**
+	 * Time during which a successful token validation is not repeated
+	 */
+	private static final long TOKEN_VALIDATION_TTL_MS = 10 * 60 * 1000;
+
+	private static final String AUTH_DIALOG_TAG = "dialog";
+
+	private static final ResponseParser<JSONArray> JSON_ARRAY_PARSER = new
+			ResponseParser<JSONArray>() {
+				@Override
+				public JSONArray parse(TrelloResponse response) throws JSONException {
+					return new JSONArray(response.getBodyAsString());
+				}
+			};
+
+	private static final ResponseParser<JSONObject> JSON_OBJECT_PARSER = new
+			ResponseParser<JSONObject>() {
+				@Override
+				public JSONObject parse(TrelloResponse response) throws JSONException {
+					return new JSONObject(response.getBodyAsString());
+				}
+			};
+
+	private static final ResponseParser<String> STRING_PARSER = new ResponseParser<String>() {
+		@Override
+		public String parse(TrelloResponse response) {
+			return response.getBodyAsString();
+		}
+	};
+
+	private static TrelloAPI sInstance;
 
 	private Context mContext;
 
@@ -91,20 +165,92 @@ public class TrelloAPI {
 
 	private SharedPreferences mPreferences;
 
-	private String mToken;
+	private volatile String mToken;
+
+	private Transport mTransport;
+
+	private SSLSocketFactory mSslSocketFactory;
+
+	private RecordingInterceptor mRecorder;
+
+	private boolean mPrewarmStarted = false;
 
-	private RequestQueue mRequestQueue;
+	private String mValidatedToken = null;
+
+	private long mTokenValidatedAt;
+
+	private final ScheduledExecutorService mExecutor;
+
+	private final ExecutorService mParseExecutor;
+
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+	private final List<Interceptor> mInterceptors = new CopyOnWriteArrayList<>();
 
 	/**
-	 * @param context Current context (e.g. activity)
+	 * Requests that have been enqueued and not yet completed, used by {@link #cancelAll(Object)}
+	 */
+	private final Set<TrelloRequest> mActiveRequests = Collections.newSetFromMap(new
+			ConcurrentHashMap<TrelloRequest, Boolean>());
+
+	private final RevalidationInterceptor mRevalidationInterceptor = new
+			RevalidationInterceptor();
+
+	private final AuthInterceptor mAuthInterceptor = new AuthInterceptor(this);
+
+	private final CircuitBreakerInterceptor mCircuitBreaker = new CircuitBreakerInterceptor();
+
+	private final BandwidthEstimator mBandwidthEstimator = new BandwidthEstimator();
+
+	private final TrelloMetrics mMetrics = new TrelloMetrics(mBandwidthEstimator);
+
+	private final OfflineInterceptor mOfflineInterceptor;
+
+	/**
+	 * Limits the requests on the wire to what the transport can handle in parallel
+	 */
+	private final PriorityInterceptor mPriorityInterceptor;
+
+	private ConnectivityMonitor mConnectivityMonitor;
+
+	private final ConnectivityMonitor.Listener mConnectivityListener = new ConnectivityMonitor
+			.Listener() {
+		@Override
+		public void onConnectivityChanged(boolean isConnected) {
+			if (isConnected) {
+				// Failures while offline say nothing about Trello
+				mCircuitBreaker.reset();
+			}
+			// The next connection may be a different network
+			mBandwidthEstimator.reset();
+		}
+	};
+
+	/**
+	 * @param context Application context
 	 * @throws IllegalArgumentException if the application key and secret are not in a {@code
 	 *                                  <meta-data>} tag inside the {@code <application>} tag in
 	 *                                  the app's manifest.
 	 */
-	public TrelloAPI(Context context) {
+	private TrelloAPI(Context context) {
 		mContext = context;
 		mPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-		mRequestQueue = Volley.newRequestQueue(context);
+		mExecutor = new ScheduledThreadPoolExecutor(PIPELINE_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TrelloAPI");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		mParseExecutor = Executors.newFixedThreadPool(PARSE_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TrelloAPI-parse");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 
 		// Get application key from <meta-data> tag in manifest
 		try {
@@ -127,35 +273,101 @@ public class TrelloAPI {
 			throw new IllegalArgumentException("Application key and secret could not be found. " +
 					"Have you put them in your application manifest?");
 		}
+
+		mConnectivityMonitor = new AndroidConnectivityMonitor(context);
+		mConnectivityMonitor.addListener(mConnectivityListener);
+		mOfflineInterceptor = new OfflineInterceptor(mConnectivityMonitor,
+				mRevalidationInterceptor, mExecutor);
+		mPriorityInterceptor = new PriorityInterceptor(mExecutor, NETWORK_THREADS);
+
+		mInterceptors.add(mMetrics.getRequestInterceptor());
+		mInterceptors.add(new LoggingInterceptor());
+		mInterceptors.add(new SingleFlightInterceptor());
+		mInterceptors.add(mAuthInterceptor);
+		mInterceptors.add(mRevalidationInterceptor);
+		mInterceptors.add(mOfflineInterceptor);
+		mInterceptors.add(new HedgingInterceptor(mExecutor));
+		// Synchronous requests give up after SYNC_TIMEOUT_SECONDS, so no retry may run longer
+		mInterceptors.add(new RetryInterceptor(mExecutor, TimeUnit.SECONDS.toMillis
+				(SYNC_TIMEOUT_SECONDS)));
+		mInterceptors.add(mCircuitBreaker);
+		mInterceptors.add(new RateLimitInterceptor(mExecutor));
+		mInterceptors.add(mBandwidthEstimator);
+		mInterceptors.add(mMetrics.getNetworkInterceptor());
+		mInterceptors.add(mPriorityInterceptor);
+	}
+
+	/**
+	 * Returns the process-wide instance. It is bound to the application context, so the same
+	 * request queue (and its threads, connections and cache) is shared by all screens.
+	 *
+	 * @param context Current context (e.g. activity)
+	 * @return shared instance
+	 * @throws IllegalArgumentException if the application key and secret are not in a {@code
+	 *                                  <meta-data>} tag inside the {@code <application>} tag in
+	 *                                  the app's manifest.
+	 */
+	public static synchronized TrelloAPI getInstance(Context context) {
+		if (sInstance == null) {
+			sInstance = new TrelloAPI(context.getApplicationContext());
+		}
+		return sInstance;
 	}
 
 	/**
-	 * Opens a dialog that handles the user authorization
+	 * Opens a dialog that handles the user authorization. Does nothing if the dialog is already
+	 * shown, so that all screens that fail with the same token lead to a single dialog.
 	 *
 	 * @param fragmentManager Support fragment manager
 	 */
 	public void requestAuthorization(FragmentManager fragmentManager) {
+		if (fragmentManager.findFragmentByTag(AUTH_DIALOG_TAG) != null) {
+			return;
+		}
 		Log.d("TrelloAPI", "requestAuthorization");
 		AuthenticationDialogFragment fragment = AuthenticationDialogFragment.newInstance();
-		fragment.show(fragmentManager, "dialog");
+		fragment.show(fragmentManager, AUTH_DIALOG_TAG);
+		// Make the dialog visible to findFragmentByTag() for the next call
+		fragmentManager.executePendingTransactions();
 	}
 
 	/**
-	 * Attention: this method makes a synchronous network request!
+	 * Checks the stored token. A positive result is reused for {@link #TOKEN_VALIDATION_TTL_MS}
+	 * and a token that Trello has rejected is not checked again. Attention: this method may make
+	 * a synchronous network request!
 	 *
 	 * @return true if stored token is valid, false otherwise
 	 */
 	public boolean validateToken() throws TrelloNotAccessibleException {
+		String token = getToken();
+		if (token == null || mAuthInterceptor.isRejected(token)) {
+			return false;
+		}
+		synchronized (this) {
+			if (token.equals(mValidatedToken) && SystemClock.elapsedRealtime() -
+					mTokenValidatedAt < TOKEN_VALIDATION_TTL_MS) {
+				return true;
+			}
+		}
+
 		try {
 			makeStringRequest("GET", "members/me", null, true);
 		} catch (TrelloNotAuthorizedException e) {
 			return false;
 		}
+
+		synchronized (this) {
+			if (token.equals(getToken())) {
+				mValidatedToken = token;
+				mTokenValidatedAt = SystemClock.elapsedRealtime();
+			}
+		}
 		return true;
 	}
 
 	/**
-	 * Utility method to make Trello API requests
+	 * Synchronous Trello API request returning a JSON array. Attention: this method blocks until
+	 * the answer arrives!
 	 *
 	 * @param httpMethod       Either GET, POST, PUT or DELETE
 	 * @param path             e.g. "actions/[idAction]"
@@ -164,88 +376,17 @@ public class TrelloAPI {
 	 * @return server answer
 	 * @throws TrelloNotAccessibleException if Trello API is not accessible
 	 * @throws TrelloNotAuthorizedException if token is not valid
-	 * @throws MalformedURLException        if path was not correctly formatted
 	 */
 	protected JSONArray makeJSONArrayRequest(String httpMethod, String path, Map<String, String>
 			queryArgs, boolean isTokenNecessary) throws TrelloNotAccessibleException,
 			TrelloNotAuthorizedException {
-		// Add key and token to arguments
-		if (queryArgs == null) {
-			queryArgs = new LinkedHashMap<>();
-		}
-		queryArgs.put("key", getAppKey());
-		if (isTokenNecessary) {
-			queryArgs.put("token", getToken());
-		}
-
-		// Build argument string
-		StringBuilder getData = new StringBuilder();
-		try {
-			for (Map.Entry<String, String> param : queryArgs.entrySet()) {
-				if (getData.length() != 0) {
-					getData.append('&');
-				}
-				getData.append(URLEncoder.encode(param.getKey(), "UTF-8"));
-				getData.append('=');
-				getData.append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
-			}
-		} catch (UnsupportedEncodingException e) {
-			// never happens
-		}
-
-		// Check if httpMethod is supported
-		int method = -1;
-		if (httpMethod.equals("GET")) {
-			method = Request.Method.GET;
-		} else if (httpMethod.equals("POST")) {
-			method = Request.Method.POST;
-		} else if (httpMethod.equals("PUT")) {
-			method = Request.Method.PUT;
-		} else if (httpMethod.equals("DELETE")) {
-			method = Request.Method.DELETE;
-		} else {
-			throw new IllegalArgumentException("HTTP method not supported: " + httpMethod);
-		}
-
-
-		String url = BASE_URL + path + "?" + getData.toString();
-
-		try {
-			RequestFuture<JSONArray> future = RequestFuture.newFuture();
-			JsonArrayRequest request = new JsonArrayRequest(method, url, null, future, future);
-			mRequestQueue.add(request);
-
-			return future.get(30, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new TrelloNotAccessibleException("Network request was interrupted.");
-		} catch (ExecutionException e) {
-			VolleyError ve = (VolleyError) e.getCause();
-			if (ve instanceof NoConnectionError || ve instanceof NetworkError) {
-				throw new TrelloNotAccessibleException("Device is not connected to the internet.");
-			} else if (ve instanceof ParseError) {
-				throw new TrelloNotAccessibleException("Server answer was not in valid JSON format" +
-						".");
-			} else if (ve.networkResponse != null) {
-				if (ve.networkResponse.statusCode == 401 || ve.networkResponse.statusCode == 400) {
-					throw new TrelloNotAuthorizedException("Server returned error 401");
-				} else {
-					throw new TrelloNotAccessibleException("Server returned error " + ve
-							.networkResponse.statusCode + ": " + new String(ve.networkResponse
-							.data));
-				}
-			} else {
-				Log.e("Flashcards for Trello", "An unknown exception was thrown.", e);
-				e.printStackTrace();
-			}
-		} catch (TimeoutException e) {
-			throw new TrelloNotAccessibleException("Network request timed out");
-		}
-
-		return null;
+		return makeRequest(new TrelloRequest(httpMethod, path, queryArgs, isTokenNecessary),
+				JSON_ARRAY_PARSER);
 	}
 
 	/**
-	 * Utility method to make Trello API requests
+	 * Synchronous Trello API request returning a JSON object. Attention: this method blocks
+	 * until the answer arrives!
 	 *
 	 * @param httpMethod       Either GET, POST, PUT or DELETE
 	 * @param path             e.g. "actions/[idAction]"
@@ -254,166 +395,692 @@ public class TrelloAPI {
 	 * @return server answer
 	 * @throws TrelloNotAccessibleException if Trello API is not accessible
 	 * @throws TrelloNotAuthorizedException if token is not valid
-	 * @throws MalformedURLException        if path was not correctly formatted
 	 */
 	protected JSONObject makeJSONObjectRequest(String httpMethod, String path, Map<String, String>
 			queryArgs, boolean isTokenNecessary) throws TrelloNotAccessibleException,
 			TrelloNotAuthorizedException {
-		// Add key and token to arguments
-		if (queryArgs == null) {
-			queryArgs = new LinkedHashMap<>();
-		}
-		queryArgs.put("key", getAppKey());
-		if (isTokenNecessary) {
-			queryArgs.put("token", getToken());
-		}
+		return makeRequest(new TrelloRequest(httpMethod, path, queryArgs, isTokenNecessary),
+				JSON_OBJECT_PARSER);
+	}
 
-		// Build argument string
-		StringBuilder getData = new StringBuilder();
-		try {
-			for (Map.Entry<String, String> param : queryArgs.entrySet()) {
-				if (getData.length() != 0) {
-					getData.append('&');
+	/**
+	 * Synchronous Trello API request returning the raw answer. Attention: this method blocks
+	 * until the answer arrives!
+	 *
+	 * @param httpMethod       Either GET, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments
+	 * @param isTokenNecessary is access token necessary?
+	 * @return server answer
+	 * @throws TrelloNotAccessibleException if Trello API is not accessible
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	protected String makeStringRequest(String httpMethod, String path, Map<String, String>
+			queryArgs, boolean isTokenNecessary) throws TrelloNotAccessibleException,
+			TrelloNotAuthorizedException {
+		return makeRequest(new TrelloRequest(httpMethod, path, queryArgs, isTokenNecessary),
+				STRING_PARSER);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #makeJSONArrayRequest(String, String, Map, boolean)}.
+	 *
+	 * @param httpMethod       Either GET, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments
+	 * @param isTokenNecessary is access token necessary?
+	 * @param callback         receives the server answer on the main thread
+	 * @return handle that cancels the request
+	 */
+	protected TrelloRequest makeJSONArrayRequestAsync(String httpMethod, String path, Map<String,
+			String> queryArgs, boolean isTokenNecessary, TrelloCallback<JSONArray> callback) {
+		return makeRequestAsync(httpMethod, path, queryArgs, isTokenNecessary, JSON_ARRAY_PARSER,
+				callback);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #makeJSONObjectRequest(String, String, Map, boolean)}.
+	 *
+	 * @param httpMethod       Either GET, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments
+	 * @param isTokenNecessary is access token necessary?
+	 * @param callback         receives the server answer on the main thread
+	 * @return handle that cancels the request
+	 */
+	protected TrelloRequest makeJSONObjectRequestAsync(String httpMethod, String path, Map<String,
+			String> queryArgs, boolean isTokenNecessary, TrelloCallback<JSONObject> callback) {
+		return makeRequestAsync(httpMethod, path, queryArgs, isTokenNecessary, JSON_OBJECT_PARSER,
+				callback);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #makeStringRequest(String, String, Map, boolean)}.
+	 *
+	 * @param httpMethod       Either GET, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments
+	 * @param isTokenNecessary is access token necessary?
+	 * @param callback         receives the server answer on the main thread
+	 * @return handle that cancels the request
+	 */
+	protected TrelloRequest makeStringRequestAsync(String httpMethod, String path, Map<String,
+			String> queryArgs, boolean isTokenNecessary, TrelloCallback<String> callback) {
+		return makeRequestAsync(httpMethod, path, queryArgs, isTokenNecessary, STRING_PARSER,
+				callback);
+	}
+
+	/**
+	 * Enqueues a Trello API request without blocking the calling thread.
+	 *
+	 * @param httpMethod       Either GET, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments
+	 * @param isTokenNecessary is access token necessary?
+	 * @param parser           converts the server answer into the result
+	 * @param callback         receives the result on the main thread
+	 * @return handle that cancels the request
+	 */
+	protected <T> TrelloRequest makeRequestAsync(String httpMethod, String path, Map<String,
+			String> queryArgs, boolean isTokenNecessary, ResponseParser<T> parser,
+			TrelloCallback<T> callback) {
+		return enqueue(new TrelloRequest(httpMethod, path, queryArgs, isTokenNecessary), parser,
+				callback);
+	}
+
+	/**
+	 * Sends a request through the interceptor chain without blocking the calling thread. The
+	 * answer is parsed on a background thread and then delivered on the main thread.
+	 *
+	 * @param request  request to send
+	 * @param parser   converts the server answer into the result
+	 * @param callback receives the result on the main thread, unless the request is cancelled
+	 * @return the request, which serves as handle to cancel it
+	 */
+	public <T> TrelloRequest enqueue(TrelloRequest request, ResponseParser<T> parser,
+	                                 TrelloCallback<T> callback) {
+		execute(request, parser, onMainThread(request, callback));
+		return request;
+	}
+
+	/**
+	 * Stale-while-revalidate variant of {@link #enqueue(TrelloRequest, ResponseParser,
+	 * TrelloCallback)} for GET requests: the last good answer for the same URL, if there is one,
+	 * is delivered at once and the request is sent in the background. The fresh result is marked
+	 * as unchanged if the server confirmed the stored answer or sent the same body again.
+	 *
+	 * @param request  GET request to send
+	 * @param parser   converts the server answer into the result
+	 * @param callback receives the results on the main thread, unless the request is cancelled
+	 * @return the request, which serves as handle to cancel it
+	 */
+	public <T> TrelloRequest enqueueRevalidating(final TrelloRequest request, final
+	ResponseParser<T> parser, final RevalidatingCallback<T> callback) {
+		mParseExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final TrelloResponse cached = mRevalidationInterceptor.getCachedResponse(request);
+				if (cached != null && !request.isCanceled()) {
+					try {
+						final T stale = parse(request, cached, parser);
+						mMainHandler.post(new Runnable() {
+							@Override
+							public void run() {
+								if (!request.isCanceled()) {
+									callback.onStale(stale);
+								}
+							}
+						});
+					} catch (TrelloException e) {
+						// The fresh answer will tell
+					}
 				}
-				getData.append(URLEncoder.encode(param.getKey(), "UTF-8"));
-				getData.append('=');
-				getData.append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
+
+				execute(request, new TrelloCallback<TrelloResponse>() {
+					@Override
+					public void onSuccess(final TrelloResponse response) {
+						mParseExecutor.execute(new Runnable() {
+							@Override
+							public void run() {
+								deliverFresh(response);
+							}
+						});
+					}
+
+					private void deliverFresh(TrelloResponse response) {
+						try {
+							final T result = parse(request, response, parser);
+							final boolean changed = cached == null || (response != cached &&
+									!Arrays.equals(response.getData(), cached.getData()));
+							mMainHandler.post(new Runnable() {
+								@Override
+								public void run() {
+									if (!request.isCanceled()) {
+										callback.onFresh(result, changed);
+									}
+								}
+							});
+						} catch (TrelloException e) {
+							onError(e);
+						}
+					}
+
+					@Override
+					public void onError(final TrelloException e) {
+						mMainHandler.post(new Runnable() {
+							@Override
+							public void run() {
+								if (!request.isCanceled()) {
+									callback.onError(e);
+								}
+							}
+						});
+					}
+				});
+			}
+		});
+		return request;
+	}
+
+	/**
+	 * Sends a request through the interceptor chain and waits for the answer. Attention: this
+	 * method blocks until the answer arrives!
+	 *
+	 * @param request request to send
+	 * @param parser  converts the server answer into the result
+	 * @return parsed server answer
+	 * @throws TrelloNotAccessibleException if Trello API is not accessible
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public <T> T makeRequest(TrelloRequest request, ResponseParser<T> parser) throws
+			TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		final BlockingCallback<T> callback = new BlockingCallback<>();
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				callback.onError(new TrelloNotAccessibleException("Request was cancelled."));
 			}
-		} catch (UnsupportedEncodingException e) {
-			// never happens
+		});
+		execute(request, parser, callback);
+		return callback.await(request);
+	}
+
+	/**
+	 * Fetches several GET resources with as few round trips as possible using Trello's batch
+	 * endpoint. Up to {@link #MAX_BATCH_SIZE} requests are combined into one network request;
+	 * longer lists are split and the batches are sent in parallel.
+	 *
+	 * @param requests GET requests, the key and token are not needed
+	 * @param parser   reads the body of a single request
+	 * @param callback receives the results in request order on the main thread; failed
+	 *                 requests (e.g. deleted resources) yield null
+	 * @return handle that cancels all batches
+	 * @throws IllegalArgumentException if one of the requests is not a GET request
+	 */
+	public <T> Cancellable enqueueBatch(List<TrelloRequest> requests, BatchParser<T> parser,
+	                                    TrelloCallback<ArrayList<T>> callback) {
+		RequestGroup group = createBatchRequests(requests);
+		executeBatch(group, parser, onMainThread(group, callback));
+		return group;
+	}
+
+	/**
+	 * Synchronous variant of {@link #enqueueBatch(List, BatchParser, TrelloCallback)}.
+	 * Attention: this method blocks until the answer arrives!
+	 *
+	 * @param requests GET requests, the key and token are not needed
+	 * @param parser   reads the body of a single request
+	 * @return results in request order; failed requests yield null
+	 * @throws TrelloNotAccessibleException if Trello API is not accessible
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public <T> ArrayList<T> makeBatchRequest(List<TrelloRequest> requests, BatchParser<T> parser)
+			throws TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		BlockingCallback<ArrayList<T>> callback = new BlockingCallback<>();
+		RequestGroup group = createBatchRequests(requests);
+		executeBatch(group, parser, callback);
+		return callback.await(group);
+	}
+
+	/**
+	 * Splits the requests into batches of at most {@link #MAX_BATCH_SIZE}. The batches carry the
+	 * tag and priority of the first request.
+	 */
+	private static RequestGroup createBatchRequests(List<TrelloRequest> requests) {
+		ArrayList<TrelloRequest> batches = new ArrayList<>();
+		for (int i = 0; i < requests.size(); i += MAX_BATCH_SIZE) {
+			TrelloRequest batch = createBatchRequest(requests.subList(i, Math.min(i +
+					MAX_BATCH_SIZE, requests.size())));
+			batch.setTag(requests.get(0).getTag());
+			batch.setPriority(requests.get(0).getPriority());
+			batches.add(batch);
 		}
+		return new RequestGroup(batches);
+	}
 
-		// Check if httpMethod is supported
-		int method = -1;
-		if (httpMethod.equals("GET")) {
-			method = Request.Method.GET;
-		} else if (httpMethod.equals("POST")) {
-			method = Request.Method.POST;
-		} else if (httpMethod.equals("PUT")) {
-			method = Request.Method.PUT;
-		} else if (httpMethod.equals("DELETE")) {
-			method = Request.Method.DELETE;
-		} else {
-			throw new IllegalArgumentException("HTTP method not supported: " + httpMethod);
+	private <T> void executeBatch(RequestGroup group, BatchParser<T> parser, final
+	TrelloCallback<ArrayList<T>> callback) {
+		final int batchCount = group.mRequests.size();
+		if (batchCount == 0) {
+			callback.onSuccess(new ArrayList<T>());
+			return;
 		}
 
+		final Object lock = new Object();
+		final ArrayList<ArrayList<T>> batchResults = new ArrayList<>(batchCount);
+		final int[] remaining = {batchCount};
+		final boolean[] failed = {false};
 
-		String url = BASE_URL + path + "?" + getData.toString();
+		for (int i = 0; i < batchCount; ++i) {
+			batchResults.add(null);
+			final int batchIndex = i;
+			execute(group.mRequests.get(i), parser, new TrelloCallback<ArrayList<T>>() {
+				@Override
+				public void onSuccess(ArrayList<T> result) {
+					ArrayList<T> combined = null;
+					synchronized (lock) {
+						if (failed[0]) {
+							return;
+						}
+						batchResults.set(batchIndex, result);
+						if (--remaining[0] == 0) {
+							combined = new ArrayList<>();
+							for (ArrayList<T> r : batchResults) {
+								combined.addAll(r);
+							}
+						}
+					}
+					if (combined != null) {
+						callback.onSuccess(combined);
+					}
+				}
 
-		try {
-			RequestFuture<JSONObject> future = RequestFuture.newFuture();
-			JsonObjectRequest request = new JsonObjectRequest(method, url, null, future, future);
-			mRequestQueue.add(request);
-
-			return future.get(30, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new TrelloNotAccessibleException("Network request was interrupted.");
-		} catch (ExecutionException e) {
-			VolleyError ve = (VolleyError) e.getCause();
-			if (ve instanceof NoConnectionError || ve instanceof NetworkError) {
-				throw new TrelloNotAccessibleException("Device is not connected to the internet.");
-			} else if (ve instanceof ParseError) {
-				throw new TrelloNotAccessibleException("Server answer was not in valid JSON format" +
-						".");
-			} else if (ve.networkResponse != null) {
-				if (ve.networkResponse.statusCode == 401) {
-					throw new TrelloNotAuthorizedException("Server returned error 401");
-				} else {
-					throw new TrelloNotAccessibleException("Server returned error " + ve
-							.networkResponse.statusCode + ": " + new String(ve.networkResponse
-							.data));
+				@Override
+				public void onError(TrelloException e) {
+					synchronized (lock) {
+						if (failed[0]) {
+							return;
+						}
+						failed[0] = true;
+					}
+					callback.onError(e);
 				}
-			} else {
-				Log.e("Flashcards for Trello", "An unknown exception was thrown.", e);
-				e.printStackTrace();
+			});
+		}
+	}
+
+	/**
+	 * Combines GET requests into one request to the batch endpoint.
+	 */
+	private static TrelloRequest createBatchRequest(List<TrelloRequest> requests) {
+		StringBuilder urls = new StringBuilder();
+		for (TrelloRequest request : requests) {
+			if (!request.getMethod().equals("GET")) {
+				throw new IllegalArgumentException("Only GET requests can be batched: " +
+						request);
+			}
+			if (urls.length() != 0) {
+				urls.append(',');
 			}
-		} catch (TimeoutException e) {
-			throw new TrelloNotAccessibleException("Network request timed out");
+			// Query arguments are encoded, so commas only separate URLs
+			urls.append(request.getUrl("/"));
 		}
 
-		return null;
+		Map<String, String> args = new LinkedHashMap<>();
+		args.put("urls", urls.toString());
+		return new TrelloRequest("GET", "batch", args, true);
 	}
 
 	/**
-	 * Utility method to make Trello API requests
+	 * Cancels all pending requests with the given tag (see {@link TrelloRequest#setTag(Object)}).
+	 * If called on the main thread, no callback of these requests is called afterwards.
 	 *
-	 * @param httpMethod       Either GET, POST, PUT or DELETE
-	 * @param path             e.g. "actions/[idAction]"
-	 * @param queryArgs        query arguments
-	 * @param isTokenNecessary is access token necessary?
-	 * @return server answer
-	 * @throws TrelloNotAccessibleException if Trello API is not accessible
-	 * @throws TrelloNotAuthorizedException if token is not valid
-	 * @throws MalformedURLException        if path was not correctly formatted
+	 * @param tag owner of the requests, must not be null
 	 */
-	protected String makeStringRequest(String httpMethod, String path, Map<String, String>
-			queryArgs, boolean isTokenNecessary) throws TrelloNotAccessibleException,
-			TrelloNotAuthorizedException {
-		// Add key and token to arguments
-		if (queryArgs == null) {
-			queryArgs = new LinkedHashMap<>();
-		}
-		queryArgs.put("key", getAppKey());
-		if (isTokenNecessary) {
-			queryArgs.put("token", getToken());
+	public void cancelAll(Object tag) {
+		for (TrelloRequest request : mActiveRequests) {
+			if (tag.equals(request.getTag())) {
+				request.cancel();
+			}
 		}
+	}
 
-		// Build argument string
-		StringBuilder getData = new StringBuilder();
-		try {
-			for (Map.Entry<String, String> param : queryArgs.entrySet()) {
-				if (getData.length() != 0) {
-					getData.append('&');
+	/**
+	 * Wraps a callback so that it is called on the main thread. Results of cancelled operations
+	 * are dropped there, so cancelling on the main thread reliably stops the callback.
+	 */
+	private <T> TrelloCallback<T> onMainThread(final Cancellable handle, final TrelloCallback<T>
+			callback) {
+		return new TrelloCallback<T>() {
+			@Override
+			public void onSuccess(final T result) {
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (!handle.isCanceled()) {
+							callback.onSuccess(result);
+						}
+					}
+				});
+			}
+
+			@Override
+			public void onError(final TrelloException e) {
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (!handle.isCanceled()) {
+							callback.onError(e);
+						}
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * Runs the interceptor chain on a background thread, maps error status codes to exceptions
+	 * and parses the answer on a parse thread. The callback is called on a background thread, but
+	 * not for cancelled requests.
+	 */
+	private <T> void execute(final TrelloRequest request, final ResponseParser<T> parser,
+	                         final TrelloCallback<T> callback) {
+		execute(request, new TrelloCallback<TrelloResponse>() {
+			@Override
+			public void onSuccess(final TrelloResponse response) {
+				mParseExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (request.isCanceled()) {
+							return;
+						}
+						try {
+							callback.onSuccess(parse(request, response, parser));
+						} catch (TrelloException e) {
+							callback.onError(e);
+						}
+					}
+				});
+			}
+
+			@Override
+			public void onError(TrelloException e) {
+				callback.onError(e);
+			}
+		});
+	}
+
+	/**
+	 * Runs the interceptor chain on a background thread and keeps track of the active requests.
+	 * The callback is called on a background thread, but not for cancelled requests.
+	 */
+	private void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		mActiveRequests.add(request);
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				mActiveRequests.remove(request);
+			}
+		});
+
+		final TrelloCallback<TrelloResponse> responseCallback = new
+				TrelloCallback<TrelloResponse>() {
+					@Override
+					public void onSuccess(TrelloResponse response) {
+						mActiveRequests.remove(request);
+						if (!request.isCanceled()) {
+							callback.onSuccess(response);
+						}
+					}
+
+					@Override
+					public void onError(TrelloException e) {
+						mActiveRequests.remove(request);
+						if (!request.isCanceled()) {
+							callback.onError(e);
+						}
+					}
+				};
+
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (request.isCanceled()) {
+					return;
 				}
-				getData.append(URLEncoder.encode(param.getKey(), "UTF-8"));
-				getData.append('=');
-				getData.append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
+				// A snapshot, so that changes to the list do not shift the chain of this request
+				new InterceptorChain(new ArrayList<>(mInterceptors), 0, request).proceed(request,
+						responseCallback);
 			}
-		} catch (UnsupportedEncodingException e) {
-			// never happens
+		});
+	}
+
+	/**
+	 * Maps error status codes to exceptions and parses the answer.
+	 */
+	private <T> T parse(TrelloRequest request, TrelloResponse response, ResponseParser<T> parser)
+			throws TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		checkStatus(response);
+		long start = System.nanoTime();
+		try {
+			T result = response.parse(parser);
+			mMetrics.recordParseTime(request.getEndpoint(), (System.nanoTime() - start) / 1000);
+			return result;
+		} catch (JSONException | IOException | IllegalStateException e) {
+			// JsonReader throws IllegalStateException for unexpected tokens
+			throw new TrelloNotAccessibleException("Server answer was not correctly formatted.");
 		}
+	}
 
-		// Check if httpMethod is supported
-		int method = -1;
-		if (httpMethod.equals("GET")) {
-			method = Request.Method.GET;
-		} else if (httpMethod.equals("POST")) {
-			method = Request.Method.POST;
-		} else if (httpMethod.equals("PUT")) {
-			method = Request.Method.PUT;
-		} else if (httpMethod.equals("DELETE")) {
-			method = Request.Method.DELETE;
-		} else {
-			throw new IllegalArgumentException("HTTP method not supported: " + httpMethod);
+	/**
+	 * Maps HTTP error status codes to exceptions.
+	 *
+	 * @throws TrelloNotAccessibleException if the status code is not 2xx
+	 * @throws TrelloNotAuthorizedException if the token is not valid
+	 */
+	private static void checkStatus(TrelloResponse response) throws
+			TrelloNotAccessibleException, TrelloNotAuthorizedException {
+		int status = response.getStatusCode();
+		if (response.isTokenRejected()) {
+			throw new TrelloNotAuthorizedException("Server returned error " + status);
+		} else if (!response.isSuccessful()) {
+			throw new TrelloNotAccessibleException("Server returned error " + status + ": " +
+					response.getBodyAsString());
 		}
+	}
 
+	/**
+	 * The interceptors are called in list order before the request is sent over the network.
+	 * The list may be modified at any time; requests that have already started keep the
+	 * interceptors they started with.
+	 *
+	 * @return modifiable list of interceptors
+	 */
+	public List<Interceptor> getInterceptors() {
+		return mInterceptors;
+	}
 
-		String url = BASE_URL + path + "?" + getData.toString();
+	/**
+	 * @return interceptor that stores the last answer of each GET request for revalidation
+	 */
+	public RevalidationInterceptor getRevalidationInterceptor() {
+		return mRevalidationInterceptor;
+	}
 
-		try {
-			RequestFuture<String> future = RequestFuture.newFuture();
-			StringRequest request = new StringRequest(method, url, future, future);
-			mRequestQueue.add(request);
-
-			return future.get(30, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new TrelloNotAccessibleException("Network request was interrupted.");
-		} catch (ExecutionException e) {
-			VolleyError ve = (VolleyError) e.getCause();
-			if (ve != null && ve.networkResponse != null) {
-				if (ve.networkResponse.statusCode == 401) {
-					throw new TrelloNotAuthorizedException("Server returned error 401");
-				} else {
-					throw new TrelloNotAccessibleException("Server returned error " + ve
-							.networkResponse.statusCode + ": " + new String(ve.networkResponse
-							.data));
+	/**
+	 * @return estimate of the connection quality, which also decides the payload mode
+	 */
+	public BandwidthEstimator getBandwidthEstimator() {
+		return mBandwidthEstimator;
+	}
+
+	/**
+	 * @return latency, size, parse time and error statistics per endpoint
+	 */
+	public TrelloMetrics getMetrics() {
+		return mMetrics;
+	}
+
+	/**
+	 * @return interceptor that fails requests immediately while Trello is unreachable
+	 */
+	public CircuitBreakerInterceptor getCircuitBreaker() {
+		return mCircuitBreaker;
+	}
+
+	/**
+	 * @return monitor that tells whether the device is online
+	 */
+	public synchronized ConnectivityMonitor getConnectivityMonitor() {
+		return mConnectivityMonitor;
+	}
+
+	/**
+	 * Replaces the source of the connectivity state, e.g. by a fake in tests to drive the
+	 * offline handling. Like {@link #setTransport(Transport)}, this affects all following
+	 * requests.
+	 *
+	 * @param monitor monitor for all following requests
+	 */
+	public synchronized void setConnectivityMonitor(ConnectivityMonitor monitor) {
+		mConnectivityMonitor.removeListener(mConnectivityListener);
+		mConnectivityMonitor = monitor;
+		monitor.addListener(mConnectivityListener);
+		mOfflineInterceptor.setConnectivityMonitor(monitor);
+	}
+
+	/**
+	 * @return interceptor that answers from the cache or defers writes while offline
+	 */
+	public OfflineInterceptor getOfflineInterceptor() {
+		return mOfflineInterceptor;
+	}
+
+	/**
+	 * @return executor that runs the interceptor chain; interceptors may use it to schedule
+	 * delayed work
+	 */
+	public ScheduledExecutorService getExecutor() {
+		return mExecutor;
+	}
+
+	/**
+	 * Returns the transport that sends the requests after the last interceptor. Unless another
+	 * one has been set, a {@link VolleyTransport} is created on first use; it delivers its
+	 * answers on the pipeline threads.
+	 *
+	 * @return transport shared by all requests
+	 */
+	public synchronized Transport getTransport() {
+		if (mTransport == null) {
+			mTransport = new VolleyTransport(mExecutor, BASE_URL, NETWORK_THREADS,
+					getSslSocketFactory());
+		}
+		return mTransport;
+	}
+
+	/**
+	 * Returns the factory used for HTTPS connections. It keeps TLS sessions in a persistent
+	 * cache, so that connections can resume a session instead of making a full handshake, even
+	 * after the app has been restarted.
+	 *
+	 * @return factory shared by all transports
+	 */
+	public synchronized SSLSocketFactory getSslSocketFactory() {
+		if (mSslSocketFactory == null) {
+			mSslSocketFactory = SSLCertificateSocketFactory.getDefault(VolleyTransport
+					.TIMEOUT_MS, new SSLSessionCache(mContext));
+		}
+		return mSslSocketFactory;
+	}
+
+	/**
+	 * Resolves the API host and opens a connection to it in the background, so that the first
+	 * real request does not have to wait for DNS, TCP and TLS. Call it as early as possible,
+	 * e.g. in {@code onCreate()} of the first activity. Only the first call has an effect.
+	 * <p/>
+	 * The time of the DNS lookup and the round trip of the request that opens the connection
+	 * are reported through {@link #getMetrics()}.
+	 */
+	public void prewarm() {
+		synchronized (this) {
+			if (mPrewarmStarted || !getConnectivityMonitor().isConnected()) {
+				return;
+			}
+			mPrewarmStarted = true;
+		}
+
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final long start = SystemClock.elapsedRealtime();
+				try {
+					InetAddress.getAllByName(API_HOST);
+				} catch (UnknownHostException e) {
+					Log.d("TrelloAPI", "Pre-warming failed: " + e.getMessage());
+					return;
 				}
+				final long dnsMs = SystemClock.elapsedRealtime() - start;
+
+				// Opens a connection that stays in the pool of the transport
+				final long connectStart = SystemClock.elapsedRealtime();
+				getTransport().execute(new TrelloRequest("HEAD", "", null, false), new
+						TrelloCallback<TrelloResponse>() {
+							@Override
+							public void onSuccess(TrelloResponse response) {
+								long roundTripMs = SystemClock.elapsedRealtime() - connectStart;
+								mMetrics.recordPrewarm(dnsMs, roundTripMs);
+								Log.d("TrelloAPI", "Pre-warmed connection, DNS " + dnsMs + " ms, " +
+										"HEAD round trip " + roundTripMs + " ms");
+							}
+
+							@Override
+							public void onError(TrelloException e) {
+								Log.d("TrelloAPI", "Pre-warming failed: " + e.getMessage());
+							}
+						});
 			}
-		} catch (TimeoutException e) {
-			throw new TrelloNotAccessibleException("Network request timed out");
+		});
+	}
+
+	/**
+	 * Replaces the transport, e.g. by an {@link InMemoryTransport} in tests. Requests that have
+	 * already been sent are not affected. The number of parallel requests is adapted to the
+	 * transport, e.g. raised for the multiplexed connection of an {@link OkHttpTransport}.
+	 *
+	 * @param transport transport for all following requests
+	 */
+	public void setTransport(Transport transport) {
+		synchronized (this) {
+			mTransport = transport;
 		}
+		mPriorityInterceptor.setMaxRunning(transport.getMaxConcurrentRequests());
+	}
 
-		return null;
+	/**
+	 * Starts writing all requests and their answers to a file that can be served by a {@link
+	 * ReplayTransport}. The records are taken right after authentication, so they contain the
+	 * answers as the app sees them, including those served from the cache after a 304.
+	 *
+	 * @param file file the records are appended to
+	 * @throws IOException if the file cannot be opened
+	 */
+	public synchronized void startRecording(File file) throws IOException {
+		stopRecording();
+		mRecorder = new RecordingInterceptor(file);
+		mInterceptors.add(mInterceptors.indexOf(mAuthInterceptor) + 1, mRecorder);
+	}
+
+	/**
+	 * Stops the recording started with {@link #startRecording(File)} and closes the file.
+	 */
+	public synchronized void stopRecording() {
+		if (mRecorder != null) {
+			mInterceptors.remove(mRecorder);
+			mRecorder.close();
+			mRecorder = null;
+		}
 	}
 
 	/**
@@ -442,15 +1109,146 @@ public class TrelloAPI {
 	}
 
 	public void setToken(String token) {
-		mToken = token;
+		synchronized (this) {
+			mToken = token;
+			mValidatedToken = null;
+		}
+		mAuthInterceptor.reset();
+		mRevalidationInterceptor.clear();
 		mPreferences.edit().putString(PREF_KEY_TOKEN, token).apply();
 	}
 
+	/**
+	 * @return application context
+	 */
 	public Context getContext() {
 		return mContext;
 	}
 
-	public void setContext(Context context) {
-		mContext = context;
+	/**
+	 * Converts the raw server answer into the result of a request. Model classes read the body
+	 * with {@link TrelloResponse#newJsonReader()} and build their objects directly from the
+	 * token stream.
+	 *
+	 * @param <T> type of the result
+	 */
+	public interface ResponseParser<T> {
+		T parse(TrelloResponse response) throws IOException, JSONException;
+	}
+
+	/**
+	 * Passes the request to the interceptor at the given index, or to the network after the
+	 * last one.
+	 */
+	private class InterceptorChain implements Interceptor.Chain {
+
+		private final List<Interceptor> mChainInterceptors;
+
+		private final int mIndex;
+
+		private final TrelloRequest mRequest;
+
+		public InterceptorChain(List<Interceptor> interceptors, int index, TrelloRequest request) {
+			mChainInterceptors = interceptors;
+			mIndex = index;
+			mRequest = request;
+		}
+
+		@Override
+		public TrelloRequest request() {
+			return mRequest;
+		}
+
+		@Override
+		public void proceed(TrelloRequest request, TrelloCallback<TrelloResponse> callback) {
+			if (mIndex < mChainInterceptors.size()) {
+				mChainInterceptors.get(mIndex).intercept(new InterceptorChain(mChainInterceptors,
+						mIndex + 1, request), callback);
+			} else {
+				getTransport().execute(request, callback);
+			}
+		}
+	}
+
+	/**
+	 * Handle of an operation made of several requests.
+	 */
+	private static class RequestGroup implements Cancellable {
+
+		private final List<TrelloRequest> mRequests;
+
+		private volatile boolean mCanceled = false;
+
+		public RequestGroup(List<TrelloRequest> requests) {
+			mRequests = requests;
+		}
+
+		@Override
+		public void cancel() {
+			mCanceled = true;
+			for (TrelloRequest request : mRequests) {
+				request.cancel();
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return mCanceled;
+		}
+	}
+
+	/**
+	 * Callback that lets the calling thread wait for the result.
+	 */
+	private static class BlockingCallback<T> implements TrelloCallback<T> {
+
+		private final CountDownLatch mLatch = new CountDownLatch(1);
+
+		private T mResult;
+
+		private TrelloException mError;
+
+		@Override
+		public synchronized void onSuccess(T result) {
+			if (mLatch.getCount() > 0) {
+				mResult = result;
+				mLatch.countDown();
+			}
+		}
+
+		@Override
+		public synchronized void onError(TrelloException e) {
+			if (mLatch.getCount() > 0) {
+				mError = e;
+				mLatch.countDown();
+			}
+		}
+
+		/**
+		 * @param handle cancelled if the answer does not arrive in time or the thread is
+		 *               interrupted, so that the request does not go on in the background
+		 */
+		public T await(Cancellable handle) throws TrelloNotAccessibleException,
+				TrelloNotAuthorizedException {
+			try {
+				if (!mLatch.await(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					handle.cancel();
+					throw new TrelloNotAccessibleException("Network request timed out");
+				}
+			} catch (InterruptedException e) {
+				handle.cancel();
+				Thread.currentThread().interrupt();
+				throw new TrelloNotAccessibleException("Network request was interrupted.");
+			}
+
+			if (mError instanceof TrelloNotAuthorizedException) {
+				throw (TrelloNotAuthorizedException) mError;
+			} else if (mError instanceof TrelloNotAccessibleException) {
+				throw (TrelloNotAccessibleException) mError;
+			} else if (mError != null) {
+				throw new TrelloNotAccessibleException(mError.getMessage());
+			}
+			return mResult;
+		}
 	}
 }
@@ -27,15 +27,21 @@ package ch.gianulli.trelloapi;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 public class TrelloList implements Parcelable {
 
+	/**
+	 * Card count of a list whose cards could not be counted
+	 */
+	public static final int UNKNOWN_CARD_COUNT = -1;
+
 	public static final Parcelable.Creator<TrelloList> CREATOR
 			= new Parcelable.Creator<TrelloList>() {
 		public TrelloList createFromParcel(Parcel in) {
@@ -47,6 +53,24 @@ public class TrelloList implements Parcelable {
 		}
 	};
 
+	/**
+	 * Name of the list with the names and descriptions of its open cards
+	 */
+	public static final Projection DEFAULT_PROJECTION = new Projection("name", null, "open",
+			"name,desc");
+
+	/**
+	 * Open cards with their names, descriptions and positions, see {@link #getCardPage}
+	 */
+	public static final Projection CARD_PAGE_PROJECTION = new Projection("name,desc,pos",
+			"open", null, null);
+
+	/**
+	 * Parser of lists without a board. Kept, so that a repeated answer is not parsed again.
+	 */
+	private static final TrelloAPI.ResponseParser<TrelloList> LIST_PARSER = createListParser
+			(null);
+
 	private String mId;
 
 	private Board mBoard;
@@ -55,6 +79,11 @@ public class TrelloList implements Parcelable {
 
 	private ArrayList<Card> mCards;
 
+	/**
+	 * Number of open cards of a list loaded without its cards, or null to count the cards
+	 */
+	private Integer mCardCount = null;
+
 	public TrelloList(String id, Board board, String name, ArrayList<Card> cards) {
 		mId = id;
 		mBoard = board;
@@ -70,33 +99,347 @@ public class TrelloList implements Parcelable {
 
 	public static TrelloList getList(TrelloAPI api, Board board, String id)
 			throws TrelloNotAuthorizedException, TrelloNotAccessibleException {
-		try {
-			LinkedHashMap<String, String> args = new LinkedHashMap<>();
-			args.put("cards", "open");
-			args.put("card_fields", "name,desc");
-			JSONObject list = api.makeJSONObjectRequest("GET", "lists/" + id, args, true);
-			if (list != null) {
-				JSONArray cardArray = list.getJSONArray("cards");
-				ArrayList<Card> cards = new ArrayList<>(cardArray.length());
-				for (int j = 0; j < cardArray.length(); ++j) {
-					JSONObject card = cardArray.getJSONObject(j);
-					cards.add(new Card(card.getString("id"), null, card.getString("name"),
-							card.getString("desc"))); // list is null for now
+		return getList(api, board, id, DEFAULT_PROJECTION);
+	}
+
+	/**
+	 * Attention: this method makes a synchronous network request!
+	 *
+	 * @param api
+	 * @param board      board of the list (may be null)
+	 * @param id         id of the list
+	 * @param projection selects the fields and cards of the list
+	 * @return the list
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static TrelloList getList(TrelloAPI api, Board board, String id, Projection
+			projection) throws TrelloNotAuthorizedException, TrelloNotAccessibleException {
+		return api.makeRequest(createListRequest(id, projection), getListParser(board));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getList(TrelloAPI, Board, String)}.
+	 *
+	 * @param api
+	 * @param board    board of the list (may be null)
+	 * @param id       id of the list
+	 * @param callback receives the list with its open cards
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable getListAsync(TrelloAPI api, Board board, String id,
+	                                       TrelloCallback<TrelloList> callback) {
+		return getListAsync(api, board, id, DEFAULT_PROJECTION, callback);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getList(TrelloAPI, Board, String, Projection)}.
+	 *
+	 * @param api
+	 * @param board      board of the list (may be null)
+	 * @param id         id of the list
+	 * @param projection selects the fields and cards of the list
+	 * @param callback   receives the list
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable getListAsync(TrelloAPI api, Board board, String id, Projection
+			projection, TrelloCallback<TrelloList> callback) {
+		return api.enqueue(createListRequest(id, projection), getListParser(board), callback);
+	}
+
+	/**
+	 * Fetches several lists including their open cards with as few round trips as possible (one
+	 * per {@link TrelloAPI#MAX_BATCH_SIZE} lists). Attention: this method makes a synchronous
+	 * network request!
+	 *
+	 * @param api
+	 * @param board board of the lists (may be null)
+	 * @param ids   ids of the lists
+	 * @return lists in the order of the ids; lists that could not be fetched are null
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static ArrayList<TrelloList> getLists(TrelloAPI api, Board board, List<String> ids)
+			throws TrelloNotAuthorizedException, TrelloNotAccessibleException {
+		return getLists(api, board, ids, DEFAULT_PROJECTION);
+	}
+
+	/**
+	 * Variant of {@link #getLists(TrelloAPI, Board, List)} with a custom projection.
+	 * Attention: this method makes a synchronous network request!
+	 *
+	 * @param api
+	 * @param board      board of the lists (may be null)
+	 * @param ids        ids of the lists
+	 * @param projection selects the fields and cards of the lists
+	 * @return lists in the order of the ids; lists that could not be fetched are null
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static ArrayList<TrelloList> getLists(TrelloAPI api, Board board, List<String> ids,
+	                                             Projection projection)
+			throws TrelloNotAuthorizedException, TrelloNotAccessibleException {
+		return api.makeBatchRequest(createListRequests(ids, projection), createBatchListParser
+				(board));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getLists(TrelloAPI, Board, List)}.
+	 *
+	 * @param api
+	 * @param board    board of the lists (may be null)
+	 * @param ids      ids of the lists
+	 * @param callback receives the lists in the order of the ids; lists that could not be
+	 *                 fetched are null
+	 * @return handle that cancels the requests
+	 */
+	public static Cancellable getListsAsync(TrelloAPI api, Board board, List<String> ids,
+	                                        TrelloCallback<ArrayList<TrelloList>> callback) {
+		return getListsAsync(api, board, ids, DEFAULT_PROJECTION, callback);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getLists(TrelloAPI, Board, List, Projection)}.
+	 *
+	 * @param api
+	 * @param board      board of the lists (may be null)
+	 * @param ids        ids of the lists
+	 * @param projection selects the fields and cards of the lists
+	 * @param callback   receives the lists in the order of the ids; lists that could not be
+	 *                   fetched are null
+	 * @return handle that cancels the requests
+	 */
+	public static Cancellable getListsAsync(TrelloAPI api, Board board, List<String> ids,
+	                                        Projection projection,
+	                                        TrelloCallback<ArrayList<TrelloList>> callback) {
+		return api.enqueueBatch(createListRequests(ids, projection), createBatchListParser
+				(board), callback);
+	}
+
+	private static ArrayList<TrelloRequest> createListRequests(List<String> ids, Projection
+			projection) {
+		ArrayList<TrelloRequest> requests = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			requests.add(createListRequest(id, projection));
+		}
+		return requests;
+	}
+
+	/**
+	 * Fetches one page of the open cards of a list. Trello pages by card id, i.e. by creation
+	 * date: each page holds cards created before those of the previous page. Use this instead
+	 * of loading the whole list if it may hold thousands of cards. Attention: this method makes
+	 * a synchronous network request!
+	 *
+	 * @param api
+	 * @param listId     id of the list
+	 * @param projection selects the fields of the cards, e.g. {@link #CARD_PAGE_PROJECTION}
+	 * @param cursor     {@link CardPage#getNextCursor()} of the previous page, or null for the
+	 *                   first page
+	 * @param pageSize   maximum number of cards (at most 1000)
+	 * @return page of cards; the list reference of the cards is not set
+	 * @throws TrelloNotAccessibleException if connection is broken
+	 * @throws TrelloNotAuthorizedException if token is not valid
+	 */
+	public static CardPage getCardPage(TrelloAPI api, String listId, Projection projection,
+	                                   String cursor, int pageSize) throws
+			TrelloNotAuthorizedException, TrelloNotAccessibleException {
+		return api.makeRequest(createCardPageRequest(listId, projection, cursor, pageSize),
+				createCardPageParser(pageSize));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #getCardPage(TrelloAPI, String, Projection, String, int)}.
+	 *
+	 * @param api
+	 * @param listId     id of the list
+	 * @param projection selects the fields of the cards, e.g. {@link #CARD_PAGE_PROJECTION}
+	 * @param cursor     {@link CardPage#getNextCursor()} of the previous page, or null for the
+	 *                   first page
+	 * @param pageSize   maximum number of cards (at most 1000)
+	 * @param callback   receives the page
+	 * @return handle that cancels the request
+	 */
+	public static Cancellable getCardPageAsync(TrelloAPI api, String listId, Projection
+			projection, String cursor, int pageSize, TrelloCallback<CardPage> callback) {
+		return api.enqueue(createCardPageRequest(listId, projection, cursor, pageSize),
+				createCardPageParser(pageSize), callback);
+	}
+
+	/**
+	 * Fetches all open cards of a list page by page, so that huge lists neither need one long
+	 * request nor one huge answer. The cards are sorted by their position once the last page
+	 * has arrived, so the projection should include the "pos" field.
+	 *
+	 * @param api
+	 * @param listId     id of the list
+	 * @param projection selects the fields of the cards, e.g. {@link #CARD_PAGE_PROJECTION}
+	 * @param pageSize   maximum number of cards per request (at most 1000)
+	 * @param callback   receives every page and then all cards
+	 * @return handle that cancels the remaining requests
+	 */
+	public static Cancellable getAllCardsAsync(final TrelloAPI api, final String listId, final
+	Projection projection, final int pageSize, final CardPageCallback callback) {
+		final CardLoader loader = new CardLoader();
+		loader.mCurrent = getCardPageAsync(api, listId, projection, null, pageSize, new
+				TrelloCallback<CardPage>() {
+					@Override
+					public void onSuccess(CardPage page) {
+						if (loader.isCanceled()) {
+							return;
+						}
+						loader.mCards.addAll(page.getCards());
+						callback.onPage(page);
+						if (page.hasNextPage()) {
+							loader.mCurrent = getCardPageAsync(api, listId, projection, page
+									.getNextCursor(), pageSize, this);
+							return;
+						}
+
+						ArrayList<Card> cards = loader.mCards;
+						Collections.sort(cards, new Comparator<Card>() {
+							@Override
+							public int compare(Card lhs, Card rhs) {
+								return Double.compare(lhs.getPos(), rhs.getPos());
+							}
+						});
+						callback.onComplete(cards);
+					}
+
+					@Override
+					public void onError(TrelloException e) {
+						callback.onError(e);
+					}
+				});
+		return loader;
+	}
+
+	private static TrelloRequest createCardPageRequest(String listId, Projection projection,
+	                                                  String cursor, int pageSize) {
+		TrelloRequest request = new TrelloRequest("GET", "lists/" + listId + "/cards", null,
+				true);
+		projection.applyTo(request);
+		request.setQueryArg("limit", String.valueOf(pageSize));
+		if (cursor != null) {
+			request.setQueryArg("before", cursor);
+		}
+		return request;
+	}
+
+	private static TrelloAPI.ResponseParser<CardPage> createCardPageParser(final int pageSize) {
+		return new TrelloAPI.ResponseParser<CardPage>() {
+			@Override
+			public CardPage parse(TrelloResponse response) throws IOException {
+				JsonReader reader = response.newJsonReader();
+				try {
+					ArrayList<Card> cards = new ArrayList<>();
+					String oldestId = null;
+					reader.beginArray();
+					while (reader.hasNext()) {
+						Card card = Card.readCard(reader);
+						cards.add(card);
+						// Ids are hex timestamps followed by a counter, so they sort by age
+						if (oldestId == null || card.getId().compareTo(oldestId) < 0) {
+							oldestId = card.getId();
+						}
+					}
+					reader.endArray();
+					return new CardPage(cards, (cards.size() < pageSize) ? null : oldestId);
+				} finally {
+					reader.close();
 				}
-				TrelloList trelloList = new TrelloList(list.getString("id"), board, list
-						.getString("name"), cards);
-				// add list reference to cards
-				for (Card c : cards) {
-					c.setList(trelloList);
+			}
+		};
+	}
+
+	private static BatchParser<TrelloList> createBatchListParser(final Board board) {
+		return new BatchParser<TrelloList>() {
+			@Override
+			protected TrelloList readItem(JsonReader reader) throws IOException {
+				return readList(reader, board);
+			}
+		};
+	}
+
+	private static TrelloRequest createListRequest(String id, Projection projection) {
+		TrelloRequest request = new TrelloRequest("GET", "lists/" + id, null, true);
+		projection.applyTo(request);
+		// A single slow list delays the start of a whole session
+		request.setHedged(true);
+		return request;
+	}
+
+	/**
+	 * @return parser of lists of the given board, the same instance for every call with the
+	 * same board (see {@link TrelloResponse#parse(TrelloAPI.ResponseParser)})
+	 */
+	private static TrelloAPI.ResponseParser<TrelloList> getListParser(Board board) {
+		return (board == null) ? LIST_PARSER : board.getListParser();
+	}
+
+	static TrelloAPI.ResponseParser<TrelloList> createListParser(final Board board) {
+		return new TrelloAPI.ResponseParser<TrelloList>() {
+			@Override
+			public TrelloList parse(TrelloResponse response) throws IOException {
+				JsonReader reader = response.newJsonReader();
+				try {
+					return readList(reader, board);
+				} finally {
+					reader.close();
 				}
+			}
+		};
+	}
 
-				return trelloList;
+	/**
+	 * Reads an array of lists including their cards.
+	 */
+	static ArrayList<TrelloList> readLists(JsonReader reader, Board board) throws IOException {
+		ArrayList<TrelloList> result = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			result.add(readList(reader, board));
+		}
+		reader.endArray();
+		return result;
+	}
+
+	/**
+	 * Reads a single list including its cards.
+	 */
+	static TrelloList readList(JsonReader reader, Board board) throws IOException {
+		String id = null;
+		String name = null;
+		ArrayList<Card> cards = new ArrayList<>();
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					id = reader.nextString();
+					break;
+				case "name":
+					name = reader.nextString();
+					break;
+				case "cards":
+					reader.beginArray();
+					while (reader.hasNext()) {
+						cards.add(Card.readCard(reader));
+					}
+					reader.endArray();
+					break;
+				default:
+					reader.skipValue();
 			}
-		} catch (JSONException e) {
-			throw new TrelloNotAccessibleException("Server answer was not correctly formatted.");
 		}
+		reader.endObject();
 
-		return null;
+		TrelloList trelloList = new TrelloList(id, board, name, cards);
+		// add list reference to cards
+		for (Card c : cards) {
+			c.setList(trelloList);
+		}
+		return trelloList;
 	}
 
 	public String getId() {
@@ -121,6 +464,28 @@ public class TrelloList implements Parcelable {
 
 	public void setCards(ArrayList<Card> cards) {
 		mCards = cards;
+		mCardCount = null;
+	}
+
+	/**
+	 * @return number of open cards; also known for lists loaded without their cards, e.g. by
+	 * {@link Board#loadDashboard(TrelloAPI)}, unless the count could not be loaded. Then it is
+	 * {@link #UNKNOWN_CARD_COUNT}.
+	 */
+	public int getCardCount() {
+		return (mCardCount != null) ? mCardCount : mCards.size();
+	}
+
+	void setCardCount(int cardCount) {
+		mCardCount = cardCount;
+	}
+
+	public Board getBoard() {
+		return mBoard;
+	}
+
+	void setBoard(Board board) {
+		mBoard = board;
 	}
 
 	@Override
@@ -143,4 +508,27 @@ public class TrelloList implements Parcelable {
 		dest.writeString(mName);
 		dest.writeList(mCards);
 	}
+
+	/**
+	 * Handle of {@link #getAllCardsAsync}, which sends one request after the other
+	 */
+	private static class CardLoader implements Cancellable {
+
+		private final ArrayList<Card> mCards = new ArrayList<>();
+
+		private Cancellable mCurrent;
+
+		private boolean mCanceled = false;
+
+		@Override
+		public void cancel() {
+			mCanceled = true;
+			mCurrent.cancel();
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return mCanceled;
+		}
+	}
 }
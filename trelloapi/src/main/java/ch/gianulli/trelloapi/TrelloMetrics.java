@@ -0,0 +1,346 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects per-endpoint statistics of the requests made through {@link TrelloAPI}: latency and
+ * parse time histograms, bytes sent and received and error counts. Endpoints are identified by
+ * their template, e.g. "boards/{id}/lists" (see {@link TrelloRequest#getEndpoint()}).
+ * <p/>
+ * The latency is measured from the start of the interceptor chain to the answer, i.e. as the
+ * app experiences it. Bytes are counted on the network, so answers served from the cache do not
+ * count, and a 304 Not Modified counts with its empty body. Times are in microseconds.
+ */
+public class TrelloMetrics {
+
+	private final ConcurrentHashMap<String, EndpointMetrics> mEndpoints = new
+			ConcurrentHashMap<>();
+
+	private final BandwidthEstimator mBandwidthEstimator;
+
+	private volatile long mPrewarmDnsMs = -1;
+
+	private volatile long mPrewarmRoundTripMs = -1;
+
+	private final Interceptor mRequestInterceptor = new Interceptor() {
+		@Override
+		public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+			final EndpointMetrics metrics = getOrCreate(chain.request().getEndpoint());
+			final long start = System.nanoTime();
+			chain.proceed(chain.request(), new TrelloCallback<TrelloResponse>() {
+				@Override
+				public void onSuccess(TrelloResponse response) {
+					metrics.mLatency.record((System.nanoTime() - start) / 1000);
+					if (!response.isSuccessful()) {
+						metrics.countError("HTTP " + response.getStatusCode());
+					}
+					callback.onSuccess(response);
+				}
+
+				@Override
+				public void onError(TrelloException e) {
+					metrics.mLatency.record((System.nanoTime() - start) / 1000);
+					metrics.countError(e.getClass().getSimpleName());
+					callback.onError(e);
+				}
+			});
+		}
+	};
+
+	private final Interceptor mNetworkInterceptor = new Interceptor() {
+		@Override
+		public void intercept(Chain chain, final TrelloCallback<TrelloResponse> callback) {
+			TrelloRequest request = chain.request();
+			final EndpointMetrics metrics = getOrCreate(request.getEndpoint());
+			metrics.addBytesOut(getSize(request));
+			chain.proceed(request, new TrelloCallback<TrelloResponse>() {
+				@Override
+				public void onSuccess(TrelloResponse response) {
+					metrics.addBytesIn(response.getData().length);
+					callback.onSuccess(response);
+				}
+
+				@Override
+				public void onError(TrelloException e) {
+					callback.onError(e);
+				}
+			});
+		}
+	};
+
+	/**
+	 * @param bandwidthEstimator estimate included in {@link #toJSON()}, may be null
+	 */
+	public TrelloMetrics(BandwidthEstimator bandwidthEstimator) {
+		mBandwidthEstimator = bandwidthEstimator;
+	}
+
+	/**
+	 * @return interceptor that measures latency and errors, has to be the first one
+	 */
+	public Interceptor getRequestInterceptor() {
+		return mRequestInterceptor;
+	}
+
+	/**
+	 * @return interceptor that counts bytes, has to be placed right before the network
+	 */
+	public Interceptor getNetworkInterceptor() {
+		return mNetworkInterceptor;
+	}
+
+	/**
+	 * @param endpoint   endpoint template of the request
+	 * @param durationUs time it took to parse the answer
+	 */
+	public void recordParseTime(String endpoint, long durationUs) {
+		getOrCreate(endpoint).mParseTime.record(durationUs);
+	}
+
+	/**
+	 * @param dnsMs       time of the DNS lookup of {@link TrelloAPI#prewarm()}
+	 * @param roundTripMs time of the HEAD request that opened the connection, including the
+	 *                    TCP and TLS handshakes as well as the server's answer
+	 */
+	public void recordPrewarm(long dnsMs, long roundTripMs) {
+		mPrewarmDnsMs = dnsMs;
+		mPrewarmRoundTripMs = roundTripMs;
+	}
+
+	/**
+	 * @return time of the DNS lookup of {@link TrelloAPI#prewarm()} or -1 if pre-warming has not
+	 * finished
+	 */
+	public long getPrewarmDnsMs() {
+		return mPrewarmDnsMs;
+	}
+
+	/**
+	 * @return round trip of the request that opened the pre-warmed connection or -1 if
+	 * pre-warming has not finished. It is an upper bound of the time the first request saves.
+	 */
+	public long getPrewarmRoundTripMs() {
+		return mPrewarmRoundTripMs;
+	}
+
+	/**
+	 * @return endpoint templates with recorded requests, sorted
+	 */
+	public List<String> getEndpoints() {
+		ArrayList<String> endpoints = new ArrayList<>(mEndpoints.keySet());
+		Collections.sort(endpoints);
+		return endpoints;
+	}
+
+	/**
+	 * @param endpoint endpoint template, e.g. "lists/{id}"
+	 * @return live statistics of the endpoint or null if no request has been recorded
+	 */
+	public EndpointMetrics getEndpointMetrics(String endpoint) {
+		return mEndpoints.get(endpoint);
+	}
+
+	/**
+	 * Forgets all statistics.
+	 */
+	public void reset() {
+		mEndpoints.clear();
+		mPrewarmDnsMs = -1;
+		mPrewarmRoundTripMs = -1;
+	}
+
+	/**
+	 * @return summary with count, percentiles (p50, p90, p99, max), bytes and errors per
+	 * endpoint, the times of pre-warming and the current bandwidth estimate
+	 */
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		try {
+			JSONObject endpoints = new JSONObject();
+			for (String endpoint : getEndpoints()) {
+				EndpointMetrics metrics = mEndpoints.get(endpoint);
+				JSONObject entry = new JSONObject();
+				entry.put("latencyUs", toJSON(metrics.mLatency));
+				entry.put("parseTimeUs", toJSON(metrics.mParseTime));
+				entry.put("bytesIn", metrics.getBytesIn());
+				entry.put("bytesOut", metrics.getBytesOut());
+				JSONObject errors = new JSONObject();
+				for (Map.Entry<String, Long> error : metrics.getErrors().entrySet()) {
+					errors.put(error.getKey(), error.getValue());
+				}
+				entry.put("errors", errors);
+				endpoints.put(endpoint, entry);
+			}
+			json.put("endpoints", endpoints);
+
+			if (mPrewarmRoundTripMs >= 0) {
+				JSONObject prewarm = new JSONObject();
+				prewarm.put("dnsMs", mPrewarmDnsMs);
+				prewarm.put("roundTripMs", mPrewarmRoundTripMs);
+				json.put("prewarm", prewarm);
+			}
+
+			if (mBandwidthEstimator != null) {
+				JSONObject connection = new JSONObject();
+				connection.put("rttMs", mBandwidthEstimator.getRttMs());
+				connection.put("bandwidthBytesPerSecond", mBandwidthEstimator
+						.getBandwidthBytesPerSecond());
+				connection.put("mode", mBandwidthEstimator.getMode().name());
+				json.put("connection", connection);
+			}
+		} catch (JSONException e) {
+			// never happens
+		}
+		return json;
+	}
+
+	/**
+	 * Writes {@link #toJSON()} to a file, e.g. to compare releases.
+	 *
+	 * @param file file to write, is overwritten
+	 * @throws IOException if the file cannot be written
+	 */
+	public void dump(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(toJSON().toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	private EndpointMetrics getOrCreate(String endpoint) {
+		EndpointMetrics metrics = mEndpoints.get(endpoint);
+		if (metrics == null) {
+			EndpointMetrics created = new EndpointMetrics();
+			metrics = mEndpoints.putIfAbsent(endpoint, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	private static JSONObject toJSON(Histogram histogram) throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put("count", histogram.getCount());
+		json.put("p50", histogram.getPercentile(50));
+		json.put("p90", histogram.getPercentile(90));
+		json.put("p99", histogram.getPercentile(99));
+		json.put("max", histogram.getMax());
+		return json;
+	}
+
+	/**
+	 * @return approximate size of the request line and headers; the arguments are in the URL
+	 */
+	private static int getSize(TrelloRequest request) {
+		int size = request.getMethod().length() + request.getUrl(TrelloAPI.BASE_URL).length() + 2;
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			size += header.getKey().length() + String.valueOf(header.getValue()).length() + 4;
+		}
+		return size;
+	}
+
+	/**
+	 * Statistics of a single endpoint
+	 */
+	public static class EndpointMetrics {
+
+		private final Histogram mLatency = new Histogram();
+
+		private final Histogram mParseTime = new Histogram();
+
+		private final HashMap<String, Long> mErrors = new HashMap<>();
+
+		private long mBytesIn = 0;
+
+		private long mBytesOut = 0;
+
+		/**
+		 * @return time from the start of the request to the answer in microseconds
+		 */
+		public Histogram getLatency() {
+			return mLatency;
+		}
+
+		/**
+		 * @return time to parse the answer in microseconds
+		 */
+		public Histogram getParseTime() {
+			return mParseTime;
+		}
+
+		/**
+		 * @return size of all answer bodies received over the network
+		 */
+		public synchronized long getBytesIn() {
+			return mBytesIn;
+		}
+
+		/**
+		 * @return approximate size of all requests sent over the network
+		 */
+		public synchronized long getBytesOut() {
+			return mBytesOut;
+		}
+
+		/**
+		 * @return number of failed requests by error class, e.g. "HTTP 404" or
+		 * "TrelloNotAccessibleException"
+		 */
+		public synchronized Map<String, Long> getErrors() {
+			return new HashMap<>(mErrors);
+		}
+
+		private synchronized void addBytesIn(long bytes) {
+			mBytesIn += bytes;
+		}
+
+		private synchronized void addBytesOut(long bytes) {
+			mBytesOut += bytes;
+		}
+
+		private synchronized void countError(String errorClass) {
+			Long count = mErrors.get(errorClass);
+			mErrors.put(errorClass, (count == null) ? 1 : count + 1);
+		}
+	}
+}
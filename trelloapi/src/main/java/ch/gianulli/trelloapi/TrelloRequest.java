@@ -0,0 +1,294 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Describes a single call to the Trello API as it travels through the interceptor chain of
+ * {@link TrelloAPI}. Interceptors may change the query arguments and headers before the request
+ * reaches the network.
+ * <p/>
+ * A request that has been enqueued can be cancelled, either directly or through {@link
+ * TrelloAPI#cancelAll(Object)} using its tag.
+ */
+public class TrelloRequest implements Cancellable {
+
+	/**
+	 * Scheduling class of a request, see {@link PriorityInterceptor}
+	 */
+	public enum Priority {
+		/**
+		 * Data the user is waiting for
+		 */
+		INTERACTIVE,
+
+		/**
+		 * Changes made in the background, e.g. moving a card
+		 */
+		BACKGROUND_WRITE,
+
+		/**
+		 * Data that might be needed later
+		 */
+		PREFETCH
+	}
+
+	private static final Pattern ID_PATTERN = Pattern.compile("(?<=/|^)[0-9a-fA-F]{24}(?=/|$)");
+
+	private final String mMethod;
+
+	private final String mPath;
+
+	private final LinkedHashMap<String, String> mQueryArgs;
+
+	private final LinkedHashMap<String, String> mHeaders = new LinkedHashMap<>();
+
+	private final boolean mTokenNecessary;
+
+	private boolean mIdempotent;
+
+	private boolean mHedged = false;
+
+	private Priority mPriority;
+
+	private volatile Object mTag;
+
+	private boolean mCanceled = false;
+
+	private ArrayList<Runnable> mCancelListeners;
+
+	/**
+	 * @param method           Either GET, HEAD, POST, PUT or DELETE
+	 * @param path             e.g. "actions/[idAction]"
+	 * @param queryArgs        query arguments (may be null)
+	 * @param isTokenNecessary is access token necessary?
+	 * @throws IllegalArgumentException if the HTTP method is not supported
+	 */
+	public TrelloRequest(String method, String path, Map<String, String> queryArgs, boolean
+			isTokenNecessary) {
+		if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("POST") && !method
+				.equals("PUT") && !method.equals("DELETE")) {
+			throw new IllegalArgumentException("HTTP method not supported: " + method);
+		}
+		mMethod = method;
+		mPath = path;
+		mQueryArgs = (queryArgs == null) ? new LinkedHashMap<String, String>() : new
+				LinkedHashMap<>(queryArgs);
+		mTokenNecessary = isTokenNecessary;
+		mIdempotent = !method.equals("POST");
+		mPriority = (method.equals("GET") || method.equals("HEAD")) ? Priority.INTERACTIVE :
+				Priority.BACKGROUND_WRITE;
+	}
+
+	/**
+	 * @return Either GET, HEAD, POST, PUT or DELETE
+	 */
+	public String getMethod() {
+		return mMethod;
+	}
+
+	/**
+	 * @return path relative to the API base URL, e.g. "lists/[idList]"
+	 */
+	public String getPath() {
+		return mPath;
+	}
+
+	/**
+	 * @return path with all Trello ids replaced by "{id}", e.g. "lists/{id}". Used to group
+	 * requests to the same endpoint.
+	 */
+	public String getEndpoint() {
+		return ID_PATTERN.matcher(mPath).replaceAll("{id}");
+	}
+
+	/**
+	 * @return modifiable query arguments in insertion order
+	 */
+	public Map<String, String> getQueryArgs() {
+		return mQueryArgs;
+	}
+
+	public void setQueryArg(String name, String value) {
+		mQueryArgs.put(name, value);
+	}
+
+	/**
+	 * @return modifiable additional HTTP headers
+	 */
+	public Map<String, String> getHeaders() {
+		return mHeaders;
+	}
+
+	public void setHeader(String name, String value) {
+		mHeaders.put(name, value);
+	}
+
+	public boolean isTokenNecessary() {
+		return mTokenNecessary;
+	}
+
+	/**
+	 * @return true if sending the request twice has the same effect as sending it once, i.e. it
+	 * may be retried. By default all methods except POST are idempotent.
+	 */
+	public boolean isIdempotent() {
+		return mIdempotent;
+	}
+
+	public void setIdempotent(boolean idempotent) {
+		mIdempotent = idempotent;
+	}
+
+	/**
+	 * @return true if a second copy may be sent when the answer is late, see {@link
+	 * HedgingInterceptor}
+	 */
+	public boolean isHedged() {
+		return mHedged;
+	}
+
+	/**
+	 * @param hedged true to allow a second copy when the answer is late. Only has an effect on
+	 *               GET requests.
+	 */
+	public void setHedged(boolean hedged) {
+		mHedged = hedged;
+	}
+
+	/**
+	 * @return scheduling class, by default {@link Priority#INTERACTIVE} for reading requests and
+	 * {@link Priority#BACKGROUND_WRITE} for all others
+	 */
+	public Priority getPriority() {
+		return mPriority;
+	}
+
+	public void setPriority(Priority priority) {
+		mPriority = priority;
+	}
+
+	/**
+	 * @return owner of the request as set by {@link #setTag(Object)}, or null
+	 */
+	public Object getTag() {
+		return mTag;
+	}
+
+	/**
+	 * @param tag owner of the request (e.g. a fragment), used by {@link TrelloAPI#cancelAll
+	 *            (Object)}
+	 */
+	public void setTag(Object tag) {
+		mTag = tag;
+	}
+
+	@Override
+	public void cancel() {
+		ArrayList<Runnable> listeners;
+		synchronized (this) {
+			if (mCanceled) {
+				return;
+			}
+			mCanceled = true;
+			listeners = mCancelListeners;
+			mCancelListeners = null;
+		}
+		if (listeners != null) {
+			for (Runnable listener : listeners) {
+				listener.run();
+			}
+		}
+	}
+
+	@Override
+	public synchronized boolean isCanceled() {
+		return mCanceled;
+	}
+
+	/**
+	 * Lets the pipeline stop work that belongs to this request, e.g. abort the network
+	 * connection. The listener runs on the thread that calls {@link #cancel()}, or immediately if
+	 * the request is already cancelled.
+	 */
+	public void addCancelListener(Runnable listener) {
+		synchronized (this) {
+			if (!mCanceled) {
+				if (mCancelListeners == null) {
+					mCancelListeners = new ArrayList<>(2);
+				}
+				mCancelListeners.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	/**
+	 * @return independent request with the same method, path, arguments, headers and tag. The
+	 * copy is not cancelled together with this request.
+	 */
+	public TrelloRequest copy() {
+		TrelloRequest copy = new TrelloRequest(mMethod, mPath, mQueryArgs, mTokenNecessary);
+		copy.mHeaders.putAll(mHeaders);
+		copy.mIdempotent = mIdempotent;
+		copy.mHedged = mHedged;
+		copy.mPriority = mPriority;
+		copy.mTag = mTag;
+		return copy;
+	}
+
+	/**
+	 * @param baseUrl e.g. "https://trello.com/1/"
+	 * @return complete URL including the encoded query arguments
+	 */
+	public String getUrl(String baseUrl) {
+		StringBuilder url = new StringBuilder(baseUrl).append(mPath);
+		boolean first = true;
+		try {
+			for (Map.Entry<String, String> param : mQueryArgs.entrySet()) {
+				url.append(first ? '?' : '&');
+				first = false;
+				url.append(URLEncoder.encode(param.getKey(), "UTF-8"));
+				url.append('=');
+				url.append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			// never happens
+		}
+		return url.toString();
+	}
+
+	@Override
+	public String toString() {
+		return mMethod + " " + getEndpoint();
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import android.util.JsonReader;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Raw answer of the Trello API to a {@link TrelloRequest}.
+ */
+public class TrelloResponse {
+
+	private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=([^;\\s]+)",
+			Pattern.CASE_INSENSITIVE);
+
+	private final int mStatusCode;
+
+	private final Map<String, String> mHeaders;
+
+	private final byte[] mData;
+
+	private final long mNetworkTimeMs;
+
+	private TrelloAPI.ResponseParser<?> mParser;
+
+	private Object mParsedResult;
+
+	/**
+	 * @param statusCode    HTTP status code
+	 * @param headers       response headers (may be null)
+	 * @param data          response body (may be null)
+	 * @param networkTimeMs time the network round trip took
+	 */
+	public TrelloResponse(int statusCode, Map<String, String> headers, byte[] data, long
+			networkTimeMs) {
+		mStatusCode = statusCode;
+		mHeaders = (headers == null) ? Collections.<String, String>emptyMap() : headers;
+		mData = (data == null) ? new byte[0] : data;
+		mNetworkTimeMs = networkTimeMs;
+	}
+
+	public int getStatusCode() {
+		return mStatusCode;
+	}
+
+	/**
+	 * @return true if the status code is 2xx
+	 */
+	public boolean isSuccessful() {
+		return mStatusCode >= 200 && mStatusCode < 300;
+	}
+
+	/**
+	 * Trello answers 401 for unknown or expired tokens, but 400 "invalid token" for tokens that
+	 * are malformed. Other 400 answers are errors in the request itself.
+	 *
+	 * @return true if Trello has rejected the access token
+	 */
+	public boolean isTokenRejected() {
+		return mStatusCode == 401 || (mStatusCode == 400 && getBodyAsString().trim()
+				.equalsIgnoreCase("invalid token"));
+	}
+
+	public Map<String, String> getHeaders() {
+		return mHeaders;
+	}
+
+	/**
+	 * @param name header name (case insensitive)
+	 * @return header value or null if the header is not present
+	 */
+	public String getHeader(String name) {
+		for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+			if (name.equalsIgnoreCase(header.getKey())) {
+				return header.getValue();
+			}
+		}
+		return null;
+	}
+
+	public byte[] getData() {
+		return mData;
+	}
+
+	public long getNetworkTimeMs() {
+		return mNetworkTimeMs;
+	}
+
+	/**
+	 * @return charset given in the Content-Type header or UTF-8
+	 */
+	public String getCharset() {
+		String contentType = getHeader("Content-Type");
+		if (contentType != null) {
+			Matcher m = CHARSET_PATTERN.matcher(contentType);
+			if (m.find()) {
+				return m.group(1);
+			}
+		}
+		return "UTF-8";
+	}
+
+	/**
+	 * Parses the body. The result is kept, so if the same answer is delivered again (e.g. after
+	 * a 304 Not Modified) the same parser instance returns the already parsed model. Keep one
+	 * parser per endpoint (parsers bound to a board are kept by the board); parsers created per
+	 * call always parse again.
+	 *
+	 * @param parser parser; a shared parser instance gets a shared result, which must not be
+	 *               modified
+	 * @return parsed body
+	 * @throws IOException   if the body could not be read
+	 * @throws JSONException if the body could not be parsed
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T parse(TrelloAPI.ResponseParser<T> parser) throws IOException,
+			JSONException {
+		if (mParser != parser) {
+			mParsedResult = parser.parse(this);
+			mParser = parser;
+		}
+		return (T) mParsedResult;
+	}
+
+	/**
+	 * @return stream over the response body
+	 */
+	public InputStream openStream() {
+		return new ByteArrayInputStream(mData);
+	}
+
+	/**
+	 * @return reader that streams the JSON tokens of the body without building a tree
+	 * @throws UnsupportedEncodingException if the response charset is not supported
+	 */
+	public JsonReader newJsonReader() throws UnsupportedEncodingException {
+		return new JsonReader(new InputStreamReader(openStream(), getCharset()));
+	}
+
+	/**
+	 * @return response body decoded with the response charset
+	 */
+	public String getBodyAsString() {
+		try {
+			return new String(mData, getCharset());
+		} catch (UnsupportedEncodingException e) {
+			return new String(mData);
+		}
+	}
+}
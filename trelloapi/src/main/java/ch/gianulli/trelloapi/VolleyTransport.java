@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.NetworkResponse;
+import com.android.volley.NoConnectionError;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.NoCache;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Default {@link Transport}: sends requests over the network using a Volley {@link
+ * RequestQueue} without cache.
+ * <p/>
+ * Cancelling a {@link TrelloRequest} removes it from the queue, or aborts its connection if it
+ * is already on the wire.
+ */
+public class VolleyTransport implements Transport {
+
+	/**
+	 * Socket timeout of a single attempt. Volley does not retry on its own; retries are handled
+	 * by {@link RetryInterceptor}.
+	 */
+	static final int TIMEOUT_MS = 8000;
+
+	private final RequestQueue mRequestQueue;
+
+	private final AbortableHurlStack mStack;
+
+	private final Executor mExecutor;
+
+	private final String mBaseUrl;
+
+	private final int mThreads;
+
+	/**
+	 * Creates and starts a request queue.
+	 *
+	 * @param executor executor that receives the answers and aborts connections
+	 * @param baseUrl  e.g. "https://trello.com/1/"
+	 * @param threads  number of network threads
+	 */
+	public VolleyTransport(Executor executor, String baseUrl, int threads) {
+		this(executor, baseUrl, threads, null);
+	}
+
+	/**
+	 * Creates and starts a request queue.
+	 *
+	 * @param executor         executor that receives the answers and aborts connections
+	 * @param baseUrl          e.g. "https://trello.com/1/"
+	 * @param threads          number of network threads
+	 * @param sslSocketFactory factory for HTTPS connections, e.g. {@link
+	 *                         TrelloAPI#getSslSocketFactory()}; null for the default
+	 */
+	public VolleyTransport(Executor executor, String baseUrl, int threads, SSLSocketFactory
+			sslSocketFactory) {
+		mStack = new AbortableHurlStack(sslSocketFactory);
+		mExecutor = executor;
+		mBaseUrl = baseUrl;
+		mThreads = threads;
+		mRequestQueue = new RequestQueue(new NoCache(), new BasicNetwork(mStack), threads, new
+				ExecutorDelivery(executor));
+		mRequestQueue.start();
+	}
+
+	@Override
+	public int getMaxConcurrentRequests() {
+		return mThreads;
+	}
+
+	@Override
+	public void execute(final TrelloRequest request, final TrelloCallback<TrelloResponse>
+			callback) {
+		if (request.isCanceled()) {
+			return;
+		}
+
+		final RawRequest volleyRequest = new RawRequest(getVolleyMethod(request.getMethod()),
+				request.getUrl(mBaseUrl), request.getHeaders(), getVolleyPriority(request
+				.getPriority()), mStack, new Response.Listener<TrelloResponse>() {
+			@Override
+			public void onResponse(TrelloResponse response) {
+				callback.onSuccess(response);
+			}
+		}, new Response.ErrorListener() {
+			@Override
+			public void onErrorResponse(VolleyError error) {
+				if (error.networkResponse != null) {
+					NetworkResponse r = error.networkResponse;
+					callback.onSuccess(new TrelloResponse(r.statusCode, r.headers, r.data, r
+							.networkTimeMs));
+				} else if (error instanceof NoConnectionError) {
+					callback.onError(new TrelloNotAccessibleException("Device is not connected " +
+							"to the internet."));
+				} else if (error instanceof TimeoutError) {
+					callback.onError(new TrelloNotAccessibleException("Network request timed " +
+							"out"));
+				} else {
+					callback.onError(new TrelloNotAccessibleException("Network request failed: " +
+							error));
+				}
+			}
+		});
+		mRequestQueue.add(volleyRequest);
+
+		request.addCancelListener(new Runnable() {
+			@Override
+			public void run() {
+				volleyRequest.cancel();
+				// Closing the socket may block, e.g. for the TLS close notification
+				mExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						mStack.abort(volleyRequest);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * @param httpMethod Either GET, HEAD, POST, PUT or DELETE
+	 * @return Volley constant for the method
+	 */
+	private static int getVolleyMethod(String httpMethod) {
+		switch (httpMethod) {
+			case "GET":
+				return Request.Method.GET;
+			case "HEAD":
+				return Request.Method.HEAD;
+			case "POST":
+				return Request.Method.POST;
+			case "PUT":
+				return Request.Method.PUT;
+			case "DELETE":
+				return Request.Method.DELETE;
+			default:
+				throw new IllegalArgumentException("HTTP method not supported: " + httpMethod);
+		}
+	}
+
+	/**
+	 * @return Volley priority of a request class, the order in which waiting requests are sent
+	 */
+	private static Request.Priority getVolleyPriority(TrelloRequest.Priority priority) {
+		switch (priority) {
+			case INTERACTIVE:
+				return Request.Priority.HIGH;
+			case BACKGROUND_WRITE:
+				return Request.Priority.NORMAL;
+			default:
+				return Request.Priority.LOW;
+		}
+	}
+
+	/**
+	 * Volley request that hands on the unparsed answer. Caching is left to the interceptors.
+	 */
+	private static class RawRequest extends Request<TrelloResponse> {
+
+		private final Map<String, String> mHeaders;
+
+		private final Priority mPriority;
+
+		private final AbortableHurlStack mStack;
+
+		private final Response.Listener<TrelloResponse> mListener;
+
+		public RawRequest(int method, String url, Map<String, String> headers, Priority priority,
+		                  AbortableHurlStack stack, Response.Listener<TrelloResponse> listener,
+		                  Response.ErrorListener errorListener) {
+			super(method, url, errorListener);
+			mHeaders = headers;
+			mPriority = priority;
+			mStack = stack;
+			mListener = listener;
+			setShouldCache(false);
+			setRetryPolicy(new DefaultRetryPolicy(TIMEOUT_MS, 0, 1f));
+		}
+
+		@Override
+		public Map<String, String> getHeaders() throws AuthFailureError {
+			return mHeaders;
+		}
+
+		@Override
+		public Priority getPriority() {
+			return mPriority;
+		}
+
+		@Override
+		protected Response<TrelloResponse> parseNetworkResponse(NetworkResponse response) {
+			return Response.success(new TrelloResponse(response.statusCode, response.headers,
+					response.data, response.networkTimeMs), null);
+		}
+
+		@Override
+		protected void deliverResponse(TrelloResponse response) {
+			mStack.release(this);
+			mListener.onResponse(response);
+		}
+
+		@Override
+		public void deliverError(VolleyError error) {
+			mStack.release(this);
+			super.deliverError(error);
+		}
+	}
+}
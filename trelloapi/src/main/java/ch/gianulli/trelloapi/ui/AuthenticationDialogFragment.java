@@ -80,7 +80,7 @@ public class AuthenticationDialogFragment extends DialogFragment {
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		mApi = new TrelloAPI(getActivity());
+		mApi = TrelloAPI.getInstance(getActivity());
 
 		setCancelable(false);
 	}
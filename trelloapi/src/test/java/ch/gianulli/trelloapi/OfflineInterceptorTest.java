@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineInterceptorTest {
+
+	private ScheduledExecutorService mExecutor;
+
+	private InMemoryTransport mTransport;
+
+	private FakeMonitor mMonitor;
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newScheduledThreadPool(2);
+		mTransport = new InMemoryTransport(mExecutor);
+		mTransport.addResponse("PUT", "cards/1/idList", 200, "{}");
+		mMonitor = new FakeMonitor();
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void sendsDeferredWritesWhenOnline() throws Exception {
+		OfflineInterceptor offline = new OfflineInterceptor(mMonitor, new
+				RevalidationInterceptor(), mExecutor);
+
+		TestChain.Result result = TestChain.enqueue(createMove(), mTransport, offline);
+		assertFalse(result.isDone(100));
+		assertEquals(1, offline.getDeferredCount());
+
+		mMonitor.setConnected(true);
+
+		assertEquals(200, result.await().getStatusCode());
+		assertEquals(0, offline.getDeferredCount());
+	}
+
+	@Test
+	public void failsWritesBeyondTheQueueLimit() throws Exception {
+		OfflineInterceptor offline = new OfflineInterceptor(mMonitor, new
+				RevalidationInterceptor(), mExecutor, 1, OfflineInterceptor.DEFAULT_MAX_DEFER_MS);
+
+		TestChain.Result first = TestChain.enqueue(createMove(), mTransport, offline);
+		TestChain.Result second = TestChain.enqueue(createMove(), mTransport, offline);
+
+		assertTrue(second.awaitError() instanceof TrelloNotAccessibleException);
+		assertFalse(first.isDone(100));
+		assertEquals(1, offline.getDeferredCount());
+	}
+
+	@Test
+	public void failsWritesThatWaitTooLong() throws Exception {
+		OfflineInterceptor offline = new OfflineInterceptor(mMonitor, new
+				RevalidationInterceptor(), mExecutor, OfflineInterceptor.DEFAULT_MAX_DEFERRED, 50);
+
+		TestChain.Result result = TestChain.enqueue(createMove(), mTransport, offline);
+
+		assertTrue(result.awaitError() instanceof TrelloNotAccessibleException);
+		assertEquals(0, offline.getDeferredCount());
+
+		// Going online later does not send the expired write
+		mMonitor.setConnected(true);
+		Thread.sleep(100);
+		assertEquals(0, mTransport.getRequests().size());
+	}
+
+	private static TrelloRequest createMove() {
+		TrelloRequest request = new TrelloRequest("PUT", "cards/1/idList", null, false);
+		request.setIdempotent(true);
+		return request;
+	}
+
+	/**
+	 * Connectivity that the test switches, offline at first
+	 */
+	private static class FakeMonitor implements ConnectivityMonitor {
+
+		private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+		private volatile boolean mConnected = false;
+
+		public void setConnected(boolean connected) {
+			mConnected = connected;
+			for (Listener listener : mListeners) {
+				listener.onConnectivityChanged(connected);
+			}
+		}
+
+		@Override
+		public boolean isConnected() {
+			return mConnected;
+		}
+
+		@Override
+		public void addListener(Listener listener) {
+			mListeners.add(listener);
+		}
+
+		@Override
+		public void removeListener(Listener listener) {
+			mListeners.remove(listener);
+		}
+	}
+}
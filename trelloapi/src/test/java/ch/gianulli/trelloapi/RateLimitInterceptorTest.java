@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RateLimitInterceptorTest {
+
+	/**
+	 * Requests Trello allows per token and 10 seconds
+	 */
+	private static final int TOKEN_LIMIT = 100;
+
+	/**
+	 * Time after which the token bucket holds one more permit
+	 */
+	private static final long REFILL_MS = 10000 / TOKEN_LIMIT;
+
+	private FakeClock mClock;
+
+	private ScheduledExecutorService mExecutor;
+
+	private InMemoryTransport mTransport;
+
+	private RateLimitInterceptor mRateLimit;
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newScheduledThreadPool(2);
+		mTransport = new InMemoryTransport(mExecutor);
+		mTransport.addResponse("GET", "boards/1", 200, "{}");
+		mClock = new FakeClock();
+		mRateLimit = new RateLimitInterceptor(mExecutor, mClock);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void queuesRequestsBeyondTheLimit() throws Exception {
+		useUpTokenBucket();
+		TrelloRequest overLimit = new TrelloRequest("GET", "boards/1", null, true);
+		TestChain.Result last = TestChain.enqueue(overLimit, mTransport, mRateLimit);
+
+		// The clock stands still, so the bucket does not refill however long the test waits
+		assertFalse(last.isDone(3 * REFILL_MS));
+		assertEquals(1, mRateLimit.getQueueLength());
+		assertEquals(TOKEN_LIMIT, mTransport.getRequests().size());
+
+		overLimit.cancel();
+		assertEquals(0, mRateLimit.getQueueLength());
+	}
+
+	@Test
+	public void sendsQueuedRequestsWhenTheBucketRefills() throws Exception {
+		useUpTokenBucket();
+		TestChain.Result first = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				true), mTransport, mRateLimit);
+		TestChain.Result second = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				true), mTransport, mRateLimit);
+		assertFalse(first.isDone(3 * REFILL_MS));
+
+		// One permit is back, so exactly one request may go
+		mClock.advance(REFILL_MS);
+		first.await();
+		assertFalse(second.isDone(3 * REFILL_MS));
+		assertEquals(1, mRateLimit.getQueueLength());
+
+		mClock.advance(REFILL_MS);
+		second.await();
+		assertEquals(TOKEN_LIMIT + 2, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void doesNotLimitRequestsWithoutToken() throws Exception {
+		useUpTokenBucket();
+
+		// Only the bucket of the API key applies, which still has permits
+		TestChain.enqueue(new TrelloRequest("GET", "boards/1", null, false), mTransport,
+				mRateLimit).await();
+	}
+
+	@Test
+	public void requeuesAfter429() throws Exception {
+		HashMap<String, String> headers = new HashMap<>();
+		headers.put("Retry-After", "0");
+		mTransport.addResponse("GET", "boards/2", new TrelloResponse(429, headers, null, 0));
+
+		TrelloResponse response = TestChain.enqueue(new TrelloRequest("GET", "boards/2", null,
+				false), mTransport, mRateLimit).await();
+
+		// The request is sent again until it has been rejected five times
+		assertEquals(429, response.getStatusCode());
+		assertEquals(5, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void parsesRetryAfterDates() {
+		assertEquals(1445412480000L, RateLimitInterceptor.parseHttpDate(
+				"Wed, 21 Oct 2015 07:28:00 GMT"));
+		assertEquals(-1, RateLimitInterceptor.parseHttpDate("tomorrow"));
+	}
+
+	/**
+	 * Sends as many requests with token as the token bucket allows at once.
+	 */
+	private void useUpTokenBucket() throws InterruptedException {
+		ArrayList<TestChain.Result> results = new ArrayList<>();
+		for (int i = 0; i < TOKEN_LIMIT; ++i) {
+			results.add(TestChain.enqueue(new TrelloRequest("GET", "boards/1", null, true),
+					mTransport, mRateLimit));
+		}
+		for (TestChain.Result result : results) {
+			result.await();
+		}
+	}
+
+	private static class FakeClock implements RateLimitInterceptor.Clock {
+
+		private volatile long mNow = 0;
+
+		@Override
+		public long elapsedRealtime() {
+			return mNow;
+		}
+
+		public void advance(long ms) {
+			mNow += ms;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetryInterceptorTest {
+
+	private ScheduledExecutorService mExecutor;
+
+	private InMemoryTransport mTransport;
+
+	private RetryInterceptor mRetry;
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newScheduledThreadPool(2);
+		mTransport = new InMemoryTransport(mExecutor);
+		mRetry = new RetryInterceptor(mExecutor, 3, 1, 1);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void retriesServerErrorsUpToMaxAttempts() throws Exception {
+		mTransport.addResponse("GET", "boards/1", 503, "{}");
+
+		TrelloResponse response = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mRetry).await();
+
+		assertEquals(503, response.getStatusCode());
+		assertEquals(3, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void doesNotRetryBeyondTotalTime() throws Exception {
+		mTransport.addResponse("GET", "boards/1", 503, "{}");
+		// Not even one more attempt could time out within the limit
+		RetryInterceptor retry = new RetryInterceptor(mExecutor, 3, 1, 1, VolleyTransport
+				.TIMEOUT_MS - 1);
+
+		TrelloResponse response = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, retry).await();
+
+		assertEquals(503, response.getStatusCode());
+		assertEquals(1, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void doesNotRetrySuccess() throws Exception {
+		mTransport.addResponse("GET", "boards/1", 200, "{}");
+
+		TrelloResponse response = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mRetry).await();
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals(1, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void doesNotRetryNonIdempotentRequests() throws Exception {
+		mTransport.addResponse("POST", "cards", 503, "{}");
+
+		TrelloResponse response = TestChain.enqueue(new TrelloRequest("POST", "cards", null,
+				false), mTransport, mRetry).await();
+
+		assertEquals(503, response.getStatusCode());
+		assertEquals(1, mTransport.getRequests().size());
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RevalidationInterceptorTest {
+
+	private ScheduledExecutorService mExecutor;
+
+	private InMemoryTransport mTransport;
+
+	private RevalidationInterceptor mRevalidation;
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newScheduledThreadPool(2);
+		mTransport = new InMemoryTransport(mExecutor);
+		mRevalidation = new RevalidationInterceptor();
+
+		HashMap<String, String> headers = new HashMap<>();
+		headers.put("ETag", "\"v1\"");
+		mTransport.addResponse("GET", "boards/1", new TrelloResponse(200, headers, "{}".getBytes
+				(), 0));
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void sendsValidatorsAndReusesAnswerOn304() throws Exception {
+		TrelloResponse first = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mRevalidation).await();
+		assertNull(mTransport.getRequests().get(0).getHeaders().get("If-None-Match"));
+
+		mTransport.addResponse("GET", "boards/1", new TrelloResponse(304, null, null, 0));
+		TrelloResponse second = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mRevalidation).await();
+
+		assertEquals("\"v1\"", mTransport.getRequests().get(1).getHeaders().get
+				("If-None-Match"));
+		assertSame(first, second);
+	}
+
+	@Test
+	public void replacesAnswerOnChange() throws Exception {
+		TestChain.enqueue(new TrelloRequest("GET", "boards/1", null, false), mTransport,
+				mRevalidation).await();
+
+		mTransport.addResponse("GET", "boards/1", 200, "{\"name\":\"new\"}");
+		TrelloResponse second = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mRevalidation).await();
+
+		assertSame(second, mRevalidation.getCachedResponse(new TrelloRequest("GET", "boards/1",
+				null, false)));
+	}
+
+	@Test
+	public void findsAnswerWithoutKeyAndToken() throws Exception {
+		TrelloRequest request = new TrelloRequest("GET", "boards/1", null, true);
+		request.setQueryArg("key", "k");
+		request.setQueryArg("token", "t");
+		TrelloResponse response = TestChain.enqueue(request, mTransport, mRevalidation).await();
+
+		assertSame(response, mRevalidation.getCachedResponse(new TrelloRequest("GET",
+				"boards/1", null, true)));
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class SingleFlightInterceptorTest {
+
+	private ScheduledExecutorService mExecutor;
+
+	private InMemoryTransport mTransport;
+
+	private SingleFlightInterceptor mSingleFlight;
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newScheduledThreadPool(2);
+		mTransport = new InMemoryTransport(mExecutor);
+		mTransport.addResponse("GET", "boards/1", 200, "{\"name\":\"Board\"}");
+		mTransport.addResponse("POST", "cards", 200, "{}");
+		mTransport.setLatency(200);
+		mSingleFlight = new SingleFlightInterceptor();
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void mergesIdenticalGetRequests() throws Exception {
+		TestChain.Result first = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mSingleFlight);
+		TestChain.Result second = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mSingleFlight);
+
+		assertSame(first.await(), second.await());
+		assertEquals(1, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void doesNotMergeWrites() throws Exception {
+		TestChain.Result first = TestChain.enqueue(new TrelloRequest("POST", "cards", null,
+				false), mTransport, mSingleFlight);
+		TestChain.Result second = TestChain.enqueue(new TrelloRequest("POST", "cards", null,
+				false), mTransport, mSingleFlight);
+
+		first.await();
+		second.await();
+		assertEquals(2, mTransport.getRequests().size());
+	}
+
+	@Test
+	public void cancelledWaiterDoesNotStopOthers() throws Exception {
+		TrelloRequest cancelled = new TrelloRequest("GET", "boards/1", null, false);
+		TestChain.Result first = TestChain.enqueue(cancelled, mTransport, mSingleFlight);
+		TestChain.Result second = TestChain.enqueue(new TrelloRequest("GET", "boards/1", null,
+				false), mTransport, mSingleFlight);
+		cancelled.cancel();
+
+		assertEquals(200, second.await().getStatusCode());
+		assertFalse(first.isDone(100));
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs requests through a list of interceptors and a transport, like {@link TrelloAPI} does, so
+ * that interceptors can be tested without a context.
+ */
+class TestChain implements Interceptor.Chain {
+
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private final List<Interceptor> mInterceptors;
+
+	private final Transport mTransport;
+
+	private final int mIndex;
+
+	private final TrelloRequest mRequest;
+
+	private TestChain(List<Interceptor> interceptors, Transport transport, int index,
+	                  TrelloRequest request) {
+		mInterceptors = interceptors;
+		mTransport = transport;
+		mIndex = index;
+		mRequest = request;
+	}
+
+	/**
+	 * Sends the request through the interceptors without waiting for the answer.
+	 */
+	public static Result enqueue(TrelloRequest request, Transport transport, Interceptor...
+			interceptors) {
+		Result result = new Result();
+		new TestChain(Arrays.asList(interceptors), transport, 0, request).proceed(request, result);
+		return result;
+	}
+
+	@Override
+	public TrelloRequest request() {
+		return mRequest;
+	}
+
+	@Override
+	public void proceed(TrelloRequest request, TrelloCallback<TrelloResponse> callback) {
+		if (mIndex < mInterceptors.size()) {
+			mInterceptors.get(mIndex).intercept(new TestChain(mInterceptors, mTransport, mIndex +
+					1, request), callback);
+		} else {
+			mTransport.execute(request, callback);
+		}
+	}
+
+	/**
+	 * Answer of a request sent with {@link #enqueue(TrelloRequest, Transport, Interceptor...)}
+	 */
+	static class Result implements TrelloCallback<TrelloResponse> {
+
+		private final CountDownLatch mLatch = new CountDownLatch(1);
+
+		private volatile TrelloResponse mResponse;
+
+		private volatile TrelloException mError;
+
+		@Override
+		public void onSuccess(TrelloResponse response) {
+			mResponse = response;
+			mLatch.countDown();
+		}
+
+		@Override
+		public void onError(TrelloException e) {
+			mError = e;
+			mLatch.countDown();
+		}
+
+		/**
+		 * @return the response
+		 * @throws AssertionError if there is no response in time or the request failed
+		 */
+		public TrelloResponse await() throws InterruptedException {
+			if (!mLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				throw new AssertionError("No answer within " + TIMEOUT_SECONDS + " s");
+			}
+			if (mError != null) {
+				throw new AssertionError("Request failed: " + mError.getMessage());
+			}
+			return mResponse;
+		}
+
+		/**
+		 * @return the error
+		 * @throws AssertionError if there is no error in time
+		 */
+		public TrelloException awaitError() throws InterruptedException {
+			if (!mLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				throw new AssertionError("No answer within " + TIMEOUT_SECONDS + " s");
+			}
+			if (mError == null) {
+				throw new AssertionError("Request did not fail");
+			}
+			return mError;
+		}
+
+		/**
+		 * @return true if an answer or an error has arrived within the given time
+		 */
+		public boolean isDone(long timeoutMs) throws InterruptedException {
+			return mLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Gian Ulli (gian.ulli@gmail.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ch.gianulli.trelloapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link VolleyTransport} with {@link OkHttpTransport} on bursts of parallel requests,
+ * like opening a board with many lists. Both talk to a local {@link MockWebServer} that answers
+ * after a fixed delay: Volley over HTTP/1.1, OkHttp over HTTP/2 without TLS (prior knowledge).
+ * TLS handshakes are not simulated, so the numbers show the effect of multiplexing only.
+ * <p/>
+ * The times and the number of connections are printed; the test only fails if a request fails.
+ */
+public class TransportBenchmark {
+
+	private static final int BURST_SIZE = 32;
+
+	private static final int BURSTS = 5;
+
+	private static final long SERVER_DELAY_MS = 50;
+
+	/**
+	 * Answer of a list with a few cards
+	 */
+	private static final String BODY = "{\"id\":\"1\",\"name\":\"Vocabulary\",\"cards\":[" +
+			"{\"id\":\"a\",\"name\":\"der Hund\",\"desc\":\"the dog\"}," +
+			"{\"id\":\"b\",\"name\":\"die Katze\",\"desc\":\"the cat\"}," +
+			"{\"id\":\"c\",\"name\":\"das Pferd\",\"desc\":\"the horse\"}]}";
+
+	private MockWebServer mHttp1Server;
+
+	private MockWebServer mHttp2Server;
+
+	private ExecutorService mDelivery;
+
+	@Before
+	public void setUp() throws Exception {
+		mHttp1Server = startServer(Protocol.HTTP_1_1);
+		mHttp2Server = startServer(Protocol.H2_PRIOR_KNOWLEDGE);
+		mDelivery = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mDelivery.shutdownNow();
+		mHttp1Server.shutdown();
+		mHttp2Server.shutdown();
+	}
+
+	@Test
+	public void burstsOfParallelRequests() throws Exception {
+		Transport volley = new VolleyTransport(mDelivery, mHttp1Server.url("/1/").toString(),
+				TrelloAPI.NETWORK_THREADS);
+		OkHttpTransport okHttp = new OkHttpTransport(mHttp2Server.url("/1/").toString(), null,
+				Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE), OkHttpTransport
+				.MAX_REQUESTS_PER_HOST);
+
+		long[] volleyTimes = runBursts(volley);
+		long[] okHttpTimes = runBursts(okHttp);
+
+		report("Volley, HTTP/1.1", volleyTimes, countConnections(mHttp1Server));
+		report("OkHttp, HTTP/2", okHttpTimes, countConnections(mHttp2Server));
+		System.out.println("OkHttp network time per request: p50 " + okHttp.getNetworkTime
+				(Protocol.H2_PRIOR_KNOWLEDGE).getPercentile(50) + " ms");
+	}
+
+	/**
+	 * @return duration of every burst in ms; the first one includes the connection setup
+	 */
+	private static long[] runBursts(Transport transport) throws Exception {
+		long[] times = new long[BURSTS];
+		for (int burst = 0; burst < BURSTS; ++burst) {
+			final CountDownLatch done = new CountDownLatch(BURST_SIZE);
+			final AtomicInteger failures = new AtomicInteger();
+			long start = System.nanoTime();
+			for (int i = 0; i < BURST_SIZE; ++i) {
+				transport.execute(new TrelloRequest("GET", "lists/" + i, null, false), new
+						TrelloCallback<TrelloResponse>() {
+							@Override
+							public void onSuccess(TrelloResponse response) {
+								if (response.getStatusCode() != 200) {
+									failures.incrementAndGet();
+								}
+								done.countDown();
+							}
+
+							@Override
+							public void onError(TrelloException e) {
+								failures.incrementAndGet();
+								done.countDown();
+							}
+						});
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+			times[burst] = (System.nanoTime() - start) / 1000000;
+			assertEquals(0, failures.get());
+		}
+		return times;
+	}
+
+	/**
+	 * @return number of connections the server accepted, i.e. the requests that were the first
+	 * on their connection
+	 */
+	private static int countConnections(MockWebServer server) throws InterruptedException {
+		int connections = 0;
+		for (int i = server.getRequestCount(); i > 0; --i) {
+			if (server.takeRequest().getSequenceNumber() == 0) {
+				++connections;
+			}
+		}
+		return connections;
+	}
+
+	private static void report(String name, long[] times, int connections) {
+		long[] warm = Arrays.copyOfRange(times, 1, times.length);
+		Arrays.sort(warm);
+		System.out.println(name + ": first burst " + times[0] + " ms, later bursts median " +
+				warm[warm.length / 2] + " ms, " + connections + " connections for " + BURSTS *
+				BURST_SIZE + " requests");
+	}
+
+	private static MockWebServer startServer(Protocol protocol) throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.setProtocols(Collections.singletonList(protocol));
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse()
+						.setResponseCode(200)
+						.setHeader("Content-Type", "application/json; charset=utf-8")
+						.setBody(BODY)
+						.setHeadersDelay(SERVER_DELAY_MS, TimeUnit.MILLISECONDS);
+			}
+		});
+		server.start();
+		return server;
+	}
+}